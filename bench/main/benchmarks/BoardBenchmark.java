@@ -0,0 +1,191 @@
+package main.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import main.java.Board;
+import main.java.Move;
+import main.java.MoveGenerator;
+import main.java.Piece;
+import main.java.Position;
+import main.java.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmarks for the hot paths of Board.  Runs headless: only the logical board is built, never the JavaFX scene.
+ * Run with "ant bench", which passes "-prof gc" so allocation rates are reported next to throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms512m", "-Xmx512m"})
+public class BoardBenchmark {
+    
+    // Lines played from the start position to reach each benchmarked position, in coordinate notation.
+    // Both leave the g1 and g8 Knights at home, with f3 and f6 free, for the processMove round trip.
+    private static final String OPENING = "";
+    private static final String MIDDLEGAME = "d2d4 d7d5 c2c4 e7e6 b1c3 b8d7 c1g5 f8e7 e2e3 c7c6 f1d3 d5c4 d3c4 b7b5 c4d3 a7a6";
+    
+    @Param({"opening", "middlegame"})
+    public String position;
+    
+    private Board board;
+    private Piece.Player side;
+    private Position centerSquare;
+    private Position selectedPosition; // Square of the selected piece.  Pieces do not know where they stand.
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    
+    /**
+     * Builds the board for the chosen position.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new Board();
+        String line = position.equals("middlegame") ? MIDDLEGAME : OPENING;
+        for (String move : line.trim().split("\\s+")) {
+            if (move.isEmpty()) {
+                continue;
+            }
+            Position start = Position.of('8' - move.charAt(1), move.charAt(0) - 'a');
+            Position end = Position.of('8' - move.charAt(3), move.charAt(2) - 'a');
+            if (!board.processMove(start, end)) {
+                throw new IllegalStateException("Illegal setup move " + move);
+            }
+            board.switchPlayer();
+        }
+        side = board.getCurrentPlayer();
+        centerSquare = Position.of(4, 4);
+        
+        // The square whose piece's moves are highlighted: the start of the last generated legal move.
+        int count = board.generateLegalMoves(moves);
+        selectedPosition = Position.of(Move.from(moves[count - 1]));
+    }
+    
+    /**
+     * Check detection for the side to move.
+     * 
+     * @return Whether the King is in check.
+     */
+    @Benchmark
+    public boolean isKingInCheck() {
+        return board.isKingInCheck(side);
+    }
+    
+    /**
+     * Attack detection on a central square.
+     * 
+     * @return Whether the square is attacked by the other side.
+     */
+    @Benchmark
+    public boolean isPositionUnderAttack() {
+        return board.isPositionUnderAttack(centerSquare, side);
+    }
+    
+    /**
+     * Validates and plays four Knight moves that bring the board back to where it started,
+     * so the state does not drift between invocations.
+     * 
+     * @return Whether every move was accepted.
+     */
+    @Benchmark
+    public boolean processMoveRoundTrip() {
+        boolean ok = playKnightMove(7, 6, 5, 5);
+        ok &= playKnightMove(0, 6, 2, 5);
+        ok &= playKnightMove(5, 5, 7, 6);
+        ok &= playKnightMove(2, 5, 0, 6);
+        return ok;
+    }
+    
+    /**
+     * Calls getPotentialMoves on every piece on the board.
+     * 
+     * @param blackhole Consumes the move lists so they are not optimized away.
+     */
+    @Benchmark
+    public void getPotentialMoves(Blackhole blackhole) {
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                Piece piece = board.getTile(row, column).getPiece();
+                if (piece != null) {
+                    blackhole.consume(piece.getPotentialMoves(Position.of(row, column)));
+                }
+            }
+        }
+    }
+    
+    /**
+     * The highlighting logic BoardController used before the move generator:
+     * getPotentialMoves on the selected piece, then isValidMove for each target.
+     * 
+     * @return The number of targets that would be highlighted.
+     */
+    @Benchmark
+    public int highlightWithPieceRules() {
+        Tile startTile = board.getTile(selectedPosition.getRow(), selectedPosition.getColumn());
+        Piece selectedPiece = startTile.getPiece();
+        List<Position> potentialMoves = selectedPiece.getPotentialMoves(selectedPosition);
+        int highlighted = 0;
+        for (Position move : potentialMoves) {
+            if (selectedPiece.isValidMove(board, startTile, board.getTile(move.getRow(), move.getColumn()))) {
+                highlighted++;
+            }
+        }
+        return highlighted;
+    }
+    
+    /**
+     * The highlighting logic BoardController uses now: one legal move generation pass, filtered by starting square.
+     * 
+     * @return The number of targets that would be highlighted.
+     */
+    @Benchmark
+    public int highlightWithMoveGenerator() {
+        int from = selectedPosition.getSquare();
+        int count = board.generateLegalMoves(moves);
+        int highlighted = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.from(moves[i]) == from) {
+                highlighted++;
+            }
+        }
+        return highlighted;
+    }
+    
+    /**
+     * Generates every legal move for the side to move.
+     * 
+     * @return The number of legal moves.
+     */
+    @Benchmark
+    public int generateLegalMoves() {
+        return board.generateLegalMoves(moves);
+    }
+    
+    /**
+     * Plays one Knight move through processMove and passes the turn.
+     * 
+     * @param fromRow The starting row.
+     * @param fromColumn The starting column.
+     * @param toRow The ending row.
+     * @param toColumn The ending column.
+     * @return Whether the move was accepted.
+     */
+    private boolean playKnightMove(int fromRow, int fromColumn, int toRow, int toColumn) {
+        boolean ok = board.processMove(Position.of(fromRow, fromColumn), Position.of(toRow, toColumn));
+        board.switchPlayer();
+        return ok;
+    }
+}
\ No newline at end of file
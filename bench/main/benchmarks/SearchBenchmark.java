@@ -0,0 +1,93 @@
+package main.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import main.java.BoardState;
+import main.java.engine.ParallelSearch;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the parallel search.  Each operation is a fixed-time search, and the nodes searched are
+ * reported as an extra "nodes" result in nodes per second, so comparing thread counts shows how the search scales.
+ * Select thread counts with e.g. "ant bench -Dbench.args='SearchBenchmark -p threads=1,8,32'".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SearchBenchmark {
+    
+    // Middlegame position with plenty of play for both sides (from the perft suite).
+    private static final String FEN = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    
+    // Length of each search.
+    private static final long SEARCH_MILLIS = 200;
+    
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+    
+    private ParallelSearch search;
+    private final BoardState position = new BoardState();
+    
+    /**
+     * Counts the nodes searched.  JMH divides the total by the measured time, giving nodes per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        
+        public long nodes;
+        
+        /**
+         * Resets the count at the start of each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+    
+    /**
+     * Creates the search with the chosen number of threads.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        search = new ParallelSearch(threads, 64);
+        position.loadFen(FEN);
+    }
+    
+    /**
+     * Stops the helper threads.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        search.shutdown();
+    }
+    
+    /**
+     * A fixed-time search from the middlegame position.
+     * 
+     * @param counter Collects the nodes searched.
+     * @return The best move, so the search cannot be optimized away.
+     */
+    @Benchmark
+    public int timedSearch(Nodes counter) {
+        int move = search.search(position, 63, SEARCH_MILLIS);
+        counter.nodes += search.getNodes();
+        return move;
+    }
+}
\ No newline at end of file
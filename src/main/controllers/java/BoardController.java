@@ -1,8 +1,13 @@
 package main.controllers.java;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.image.ImageView;
@@ -12,11 +17,18 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.FlowPane;
 import javafx.scene.paint.Color;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.ChessTimer;
+import main.java.Move;
+import main.java.MoveGenerator;
 import main.java.OnPieceCapturedListener;
 import main.java.Piece;
 import main.java.Position;
 import main.java.Tile;
+import main.java.archive.PositionIndex;
+import main.java.engine.ParallelSearch;
+import main.java.pgn.PgnGame;
+import main.java.pgn.PgnWriter;
 
 /**
  * Controls the chessboard's graphical user interface.
@@ -26,19 +38,28 @@ public class BoardController implements OnPieceCapturedListener {
     // Constants for board size and tile size.
     private static final int SIZE = 8;
     private static final int TILE_SIZE = 75;
+    private static final int ENGINE_DEPTH = 6; // Search depth for the engine when the game has no timers.
     
     // Logical and visual representations of the chess board.
     private final Board chessBoard = new Board();
     private final GridPane gridPane = new GridPane();
     
     // Game state variables.
-    private Piece selectedPiece = null;
+    private Position selectedPosition = null; // Square of the selected piece.  Pieces do not know where they stand.
     private Piece.Player currentPlayer = Piece.Player.WHITE;
     
+    // Legal moves of the current player, generated once when a piece is selected.
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+    private int legalMoveCount = 0;
+    
     // Timers for each player
     private ChessTimer whiteTimer;
     private ChessTimer blackTimer;
     
+    // Engine playing one side, or null when both sides are people.
+    private ParallelSearch engine;
+    private Piece.Player engineColor;
+    
     // CREDIT: ChatGPT.  Java's version of a dictionary, where there's a key and value.
     // Stores original tile colors for highlighting purposes.
     private final Map<Position, Color> originalTileColors = new HashMap<>();
@@ -135,6 +156,9 @@ public class BoardController implements OnPieceCapturedListener {
     @FXML
     private void handleTileClick(MouseEvent event) {
         System.out.print("Tile clicked"); // Debugging statement
+        if (isEngineTurn()) {
+            return;
+        }
         Node source = (Node) event.getSource();
         
         // Had some problems with pieces on the end returning null.  If a tile position returns null, changes it to 0.
@@ -149,24 +173,51 @@ public class BoardController implements OnPieceCapturedListener {
     /**
      * Moves a piece to a new position on the board, then switches to the other player's turn.
      * 
-     * @param piece The piece to move.
-     * @param newPosition The new position of the piece.
+     * @param move The encoded legal move to play.
      */
-    private void movePiece(Piece piece, Position newPosition) {
-        System.out.println("Moving piece from " + piece.getPosition() + " to " + newPosition); // Debugging statement
-        Position originalPosition = piece.getPosition();
+    private void movePiece(int move) {
+        Position originalPosition = Position.of(Move.from(move));
+        Position newPosition = Position.of(Move.to(move));
+        System.out.println("Moving piece from " + originalPosition + " to " + newPosition); // Debugging statement
         
         // Updates the backend board, then updates the view if the move is successful
-        if (chessBoard.makeMove(originalPosition, newPosition)) {
+        if (chessBoard.makeMove(move)) {
             movePieceView(originalPosition, newPosition);
-            piece.setPosition(newPosition);
+            updateSpecialMoveView(move, newPosition);
             switchPlayer();
             addIncrementToTimer();
+            playEngineMove();
         }
-        selectedPiece = null; // Deselects the piece after moving
+        selectedPosition = null; // Deselects the piece after moving
         System.out.println("Piece moved"); // Debugging statement
 //        printGridPaneChildren(); // Debugging method.  Print the initial state of the GridPane.
-        
+
+    }
+    
+    /**
+     * Updates the pieces a move affects besides the one that moved:
+     * the Rook when castling, the Pawn taken en passant, and the new piece when a Pawn promotes.
+     * 
+     * @param move The encoded move that was played.
+     * @param end The ending position of the moved piece.
+     */
+    private void updateSpecialMoveView(int move, Position end) {
+        int to = Move.to(move);
+        if (Move.isCastle(move)) {
+            int rookFrom = Move.flags(move) == Move.KING_CASTLE ? to + 1 : to - 2;
+            int rookTo = Move.flags(move) == Move.KING_CASTLE ? to - 1 : to + 1;
+            movePieceView(Position.of(rookFrom), Position.of(rookTo));
+        } else if (Move.flags(move) == Move.EN_PASSANT) {
+            ImageView captured = findPieceImageView(Position.of(Move.from(move) >>> 3, to & 7));
+            if (captured != null) {
+                gridPane.getChildren().remove(captured);
+            }
+        } else if (Move.isPromotion(move)) {
+            ImageView promoted = findPieceImageView(end);
+            if (promoted != null) {
+                promoted.setImage(chessBoard.getTile(end).getPiece().getImage());
+            }
+        }
     }
     
     /**
@@ -215,33 +266,27 @@ public class BoardController implements OnPieceCapturedListener {
     }
     
     /**
-     * Highlights potential moves for the selected piece.
-     * 
-     * @param moves  The list of potential moves.
+     * Highlights the legal moves of the selected piece.
+     * Uses the moves generated for the whole side when the piece was selected, rather than testing every square.
      */
-    private void highlightPotentialMoves(List<Position> moves) {
+    private void highlightPotentialMoves() {
         System.out.println("Highlighting potential moves"); // Debugging statement
         
-        // Debugging loop
-        if (moves == null) {
-            System.out.println("No potential moves (moves list is null)");
-            return;
-        }
-        
-        for (Position move : moves) {
-            System.out.println("Checking move to " + move);
+        int from = selectedPosition.getSquare();
+        for (int i = 0; i < legalMoveCount; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) != from) {
+                continue;
+            }
+            Position target = Position.of(Move.to(move));
             
-            // Check if each move is valid, then highlight it
-            if (selectedPiece.isValidMove(chessBoard, chessBoard.getTile(selectedPiece.getPosition().getRow(), selectedPiece.getPosition().getColumn()), chessBoard.getTile(move.getRow(), move.getColumn()))) {
-
-                // CREDIT: ChatGPT.  Part of highlighting available moves.  Stores the original color of the tile in the originalTileColors field.
-                // Then sets the highlight color.
-                Node tileNode = findTileNode(move);
-                if (tileNode instanceof Rectangle) {
-                    Rectangle tile = (Rectangle) tileNode;
-                    originalTileColors.put(move, (Color) tile.getFill()); // Stores the original color
-                    tile.setFill(new Color(1, 0, 0, 0.5));
-                }
+            // CREDIT: ChatGPT.  Part of highlighting available moves.  Stores the original color of the tile in the originalTileColors field.
+            // Then sets the highlight color.
+            Node tileNode = findTileNode(target);
+            if (tileNode instanceof Rectangle) {
+                Rectangle tile = (Rectangle) tileNode;
+                originalTileColors.put(target, (Color) tile.getFill()); // Stores the original color
+                tile.setFill(new Color(1, 0, 0, 0.5));
             }
         }
         System.out.println("Potential moves highlighted");
@@ -257,6 +302,12 @@ public class BoardController implements OnPieceCapturedListener {
         System.out.println("Piece clicked");
         Node source = (Node) event.getSource();
         
+        // The player cannot move the engine's pieces, or move while it is thinking
+        if (isEngineTurn()) {
+            event.consume();
+            return;
+        }
+        
         // Ensures the source is an instance of ImageView
         if (!(source instanceof ImageView)) {
             System.out.println("Clicked source is not a piece");
@@ -286,10 +337,10 @@ public class BoardController implements OnPieceCapturedListener {
         
         
         if (piece !=null && piece.getPlayer() == chessBoard.getCurrentPlayer()) {
-            selectedPiece = piece;
+            selectedPosition = Position.of(row, col);
             clearHighlights();
-            List<Position> potentialMoves = selectedPiece.getPotentialMoves();
-            highlightPotentialMoves(potentialMoves);
+            legalMoveCount = chessBoard.generateLegalMoves(legalMoves);
+            highlightPotentialMoves();
         } else {
             System.out.println("No piece found at clicked tile");
         }
@@ -340,6 +391,49 @@ public class BoardController implements OnPieceCapturedListener {
         this.blackTimer = blackTimer;
     }
     
+    /**
+     * Lets the engine play one side.  It moves on its own turns within a share of the time on its timer,
+     * and clicks on the board are ignored meanwhile.  If it is already the engine's turn, it starts at once.
+     * 
+     * @param engine The search that finds the engine's moves.
+     * @param color The side the engine plays.
+     */
+    public void setEngineOpponent(ParallelSearch engine, Piece.Player color) {
+        this.engine = engine;
+        this.engineColor = color;
+        playEngineMove();
+    }
+    
+    /**
+     * Checks whether the engine is the current player.
+     * 
+     * @return true if the engine is to move.
+     */
+    private boolean isEngineTurn() {
+        return engine != null && currentPlayer == engineColor;
+    }
+    
+    /**
+     * Starts the engine's search if it is the engine's turn.  The search runs on a copy of the board in
+     * a background thread, so the window keeps responding, and the move is played on the JavaFX thread.
+     */
+    private void playEngineMove() {
+        if (!isEngineTurn()) {
+            return;
+        }
+        Board position = chessBoard.copy();
+        ChessTimer timer = engineColor == Piece.Player.WHITE ? whiteTimer : blackTimer;
+        Thread thinking = new Thread(() -> {
+            int move = timer != null ? engine.findBestMove(position, timer) : engine.findBestMove(position, ENGINE_DEPTH);
+            // No move means the engine is mated or stalemated, and the game is over
+            if (move != Move.NONE) {
+                Platform.runLater(() -> movePiece(move));
+            }
+        }, "Engine opponent");
+        thinking.setDaemon(true);
+        thinking.start();
+    }
+    
     /**
      * Swaps the active player, activating and deactivating timers appropriately.
      */
@@ -406,16 +500,91 @@ public class BoardController implements OnPieceCapturedListener {
      */
     private  void handleMove(int row, int col) {
         
-        // If a piece is selected and the move is valid, move the piece
-        if (selectedPiece != null) {
-            Position newPosition = new Position(row, col);
-            if (selectedPiece.isValidMove(chessBoard, chessBoard.getTile(selectedPiece.getPosition().getRow(), selectedPiece.getPosition().getColumn()), chessBoard.getTile(row, col))) {
-                movePiece(selectedPiece, newPosition);
-                clearHighlights();
+        // If a piece is selected and the move is one of its legal moves, move the piece
+        if (selectedPosition != null) {
+            int from = selectedPosition.getSquare();
+            int to = row * SIZE + col;
+            for (int i = 0; i < legalMoveCount; i++) {
+                int move = legalMoves[i];
+                // Promotions always become a Queen
+                if (Move.from(move) == from && Move.to(move) == to
+                        && (!Move.isPromotion(move) || Move.promotionType(move) == BoardState.QUEEN)) {
+                    movePiece(move);
+                    clearHighlights();
+                    break;
+                }
             }
         }
     }
     
+    /**
+     * Builds a record of the game played so far, e.g. for saving as PGN.
+     * 
+     * @param white The name of the White player.
+     * @param black The name of the Black player.
+     * @return The game, with its result if it has been decided by mate, stalemate or time, otherwise unknown.
+     */
+    public PgnGame toPgnGame(String white, String black) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Casual game");
+        tags.put("Site", "OOP-Chess");
+        tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("Round", "-");
+        tags.put("White", white);
+        tags.put("Black", black);
+        if (!chessBoard.getStartFen().equals(BoardState.STARTING_FEN)) {
+            tags.put("SetUp", "1");
+            tags.put("FEN", chessBoard.getStartFen());
+        }
+        return new PgnGame(tags, chessBoard.getMoveHistory(), getResult());
+    }
+    
+    /**
+     * Adds the game played so far to the end of a PGN file.
+     * 
+     * @param file The PGN file.  It is created if it does not exist.
+     * @param white The name of the White player.
+     * @param black The name of the Black player.
+     * @throws IOException if the file cannot be written.
+     */
+    public void exportGame(Path file, String white, String black) throws IOException {
+        try (PgnWriter writer = new PgnWriter(file)) {
+            writer.write(toPgnGame(white, black));
+        }
+    }
+    
+    /**
+     * Finds the archived games that reached the position on the board, e.g. to show how it has scored.
+     * 
+     * @param index The position index of the game archive.
+     * @return The games and their results.
+     */
+    public PositionIndex.Matches findArchivedGames(PositionIndex index) {
+        return index.find(chessBoard);
+    }
+    
+    /**
+     * Works out the result of the game so far.
+     * 
+     * @return The result in PGN notation.
+     */
+    private String getResult() {
+        if (whiteTimer != null && whiteTimer.getRemainingTime() <= 0) {
+            return PgnGame.BLACK_WINS;
+        }
+        if (blackTimer != null && blackTimer.getRemainingTime() <= 0) {
+            return PgnGame.WHITE_WINS;
+        }
+        if (chessBoard.generateLegalMoves(new int[MoveGenerator.MAX_MOVES]) > 0) {
+            return PgnGame.UNKNOWN;
+        }
+        // No legal moves: checkmate loses, stalemate is a draw
+        if (!chessBoard.isKingInCheck(currentPlayer)) {
+            return PgnGame.DRAW;
+        }
+        return currentPlayer == Piece.Player.WHITE ? PgnGame.BLACK_WINS : PgnGame.WHITE_WINS;
+    }
+    
     /**
      * Returns the logical representation of the board.
      * 
@@ -7,7 +7,9 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.stage.Stage;
+import main.java.Piece;
 
 
 // This begins the ColorSelectionController class that is able to change to the
@@ -23,6 +25,10 @@ public class ColorSelectionController{
     private Scene scene;
     private Parent root;
     
+  // This variable is used to store the color the user picks,
+  // so that a computer opponent can play the other color.
+    public static Piece.Player playerColor = Piece.Player.WHITE;
+    
 
     // This is a method that changes to the next scene (screen).
     // After the user picks a color they want to play in Chess (white or black).
@@ -30,6 +36,8 @@ public class ColorSelectionController{
     // now asking the user what time increment they would like to play
     // on.
     public void changeToTimeControl(ActionEvent event) throws IOException{
+        // Store the color from the text of the button the user clicked
+        playerColor = "Black".equals(((Button) event.getSource()).getText()) ? Piece.Player.BLACK : Piece.Player.WHITE;
         // Set the root as the root node from the Time Control fxml file.
         root = FXMLLoader.load(getClass().getResource("/main/resources/fxml/TimeControl.fxml"));
         // Set the stage by getting the window and the scene (content of the window)
@@ -38,6 +38,10 @@ public class OpponentSelectionController{
   // from the profile button the user clicks. 
     public static String profileName;
     
+  // This variable is true when the user picks the computer
+  // as their opponent, so the engine plays the other color.
+    public static boolean engineOpponent;
+    
   // This is a label and object within the fxml file
   // so @FXML must be here in order for the program to know
   // to look into the fxml. 
@@ -46,13 +50,47 @@ public class OpponentSelectionController{
    // label "profileButtonContainer"
     private VBox profileButtonContainer;
 
-    // This method calls the loadProfilesFromCSV method
+    // This method adds the computer opponent and calls the loadProfilesFromCSV method
     @FXML
     private void initialize() {
+        // The computer is always the first opponent in the list
+        profileButtonContainer.getChildren().add(createOpponentButton("Computer", true));
         // Load profiles from CSV and populate the buttonContainer
         loadProfilesFromCSV();
     }
 
+    // This is a method that creates a button for an opponent.
+    // With a click of the button, the opponent is stored and the
+    // screen will change to asking the user what color they would like to play.
+    private Button createOpponentButton(String name, boolean engine) {
+        Button opponentButton = new Button(name);
+        // Set the action event handler using a lambda expression
+        opponentButton.setOnAction(e1 -> {
+            try {
+                // Retrieve the name associated with the button
+                profileName = opponentButton.getText();
+                engineOpponent = engine;
+                // When an opponent is selected, change to color selection screen
+                changeToColorSelection(e1);
+            } catch (IOException ioException) {
+                ioException.printStackTrace();  // Handle the exception appropriately
+            }
+        });
+        
+        // Button customization
+        // Button color
+        opponentButton.setStyle("-fx-background-color: #511111;");
+        // Text color
+        opponentButton.setTextFill(javafx.scene.paint.Color.WHITE);
+        // Button size
+        opponentButton.setPrefSize(300, 90);
+
+        // Set the font to Century and size to 24
+        Font centuryFont = Font.font("Century", FontWeight.NORMAL, FontPosture.REGULAR, 24);
+        opponentButton.setFont(centuryFont);
+        return opponentButton;
+    }
+
     // This is a method that reads from the CSV file and 
     // dynamically creates buttons into the OpponentSelection fxml file
     // based on the profile names found in the CSV file.
@@ -71,34 +109,8 @@ public class OpponentSelectionController{
             String[] parts = line.split(",");
             String name = parts[0].trim();
 
-            // Create a button for each profile
-            Button profileButton = new Button(name);
-            // Set the action event handler using a lambda expression
-            profileButton.setOnAction(e1 -> {
-                try {
-                     // Retrieve the name associated with the button
-                    profileName = profileButton.getText();
-                    // When an opponent is selected, change to color selection screen
-                    changeToColorSelection(e1);
-                } catch (IOException ioException) {
-                    ioException.printStackTrace();  // Handle the exception appropriately
-                }
-            });
-            
-            // Button customization
-            // Button color
-            profileButton.setStyle("-fx-background-color: #511111;");
-            // Text color
-            profileButton.setTextFill(javafx.scene.paint.Color.WHITE);
-            // Button size
-            profileButton.setPrefSize(300, 90);
-
-            // Set the font to Century and size to 24
-            Font centuryFont = Font.font("Century", FontWeight.NORMAL, FontPosture.REGULAR, 24);
-            profileButton.setFont(centuryFont);
-
-            // Add the button to the container
-            profileButtonContainer.getChildren().add(profileButton);
+            // Create a button for each profile and add it to the container
+            profileButtonContainer.getChildren().add(createOpponentButton(name, false));
         }
     } catch (IOException | NumberFormatException e) {
         Logger.getLogger(OpponentSelectionController.class.getName()).log(Level.SEVERE, null, e);
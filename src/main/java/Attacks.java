@@ -0,0 +1,313 @@
+package main.java;
+
+/**
+ * Computes the squares attacked by each type of piece as 64-bit bitboards.
+ * Squares are numbered row * 8 + column, matching the tile coordinates used by Board,
+ * so square 0 is the top-left tile (a8) and square 63 is the bottom-right tile (h1).
+ * Knight, King and Pawn attacks from each square are worked out once, when the class is loaded, into 64-entry tables.
+ * <p>
+ * Rook and Bishop attacks are looked up in tables indexed by "magic" multiplication: the pieces standing on
+ * a slider's rays (its mask, leaving out the edge squares, which never block anything beyond them) are multiplied
+ * by a number chosen for the square so that the top bits of the product are a distinct index for every
+ * arrangement of blockers that gives different attacks.  The numbers were found by trying sparse random numbers
+ * until one worked for each square; they depend on the square numbering, so are not the usual published ones.
+ * The tables are filled when the class is loaded.
+ */
+public final class Attacks {
+    
+    // Masks for the left-most and right-most columns, used to stop shifts from wrapping around the board.
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = 0x8080808080808080L;
+    private static final long FILE_AB = FILE_A | (FILE_A << 1);
+    private static final long FILE_GH = FILE_H | (FILE_H >>> 1);
+    
+    // Squares attacked from each square by the pieces that jump rather than slide; Pawns by color.
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            long b = 1L << square;
+            KNIGHT_ATTACKS[square] = ((b << 17) & ~FILE_A) | ((b << 15) & ~FILE_H)
+                    | ((b << 10) & ~FILE_AB) | ((b << 6) & ~FILE_GH)
+                    | ((b >>> 17) & ~FILE_H) | ((b >>> 15) & ~FILE_A)
+                    | ((b >>> 10) & ~FILE_GH) | ((b >>> 6) & ~FILE_AB);
+            long sideways = ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+            long row = b | sideways;
+            KING_ATTACKS[square] = sideways | (row << 8) | (row >>> 8);
+            PAWN_ATTACKS[BoardState.WHITE][square] = pawnAttacks(BoardState.WHITE, b);
+            PAWN_ATTACKS[BoardState.BLACK][square] = pawnAttacks(BoardState.BLACK, b);
+        }
+    }
+    
+    // Magic lookup for each square: the mask of relevant blockers, the multiplier, the shift leaving the index bits,
+    // and where the square's attacks start in the shared table.
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+        0x248000A040048210L, 0x00C0300020004000L, 0x8200220008801041L, 0x0080080010008006L,
+        0x2080080080020400L, 0x1280040001800200L, 0x0200410200008408L, 0x4100010000803042L,
+        0x0012002200804104L, 0x0002400020005000L, 0x8060801000200080L, 0x0102000A04104020L,
+        0x0001000411000800L, 0x6502800400800200L, 0x2000800200010080L, 0x00650004A200CB00L,
+        0x0920818000E14000L, 0x8040004020100040L, 0x8260808020001004L, 0x00020200082093C0L,
+        0x0800050010080100L, 0x4002808002000400L, 0x1854040001085290L, 0x008012000041941BL,
+        0x0080004240042000L, 0x4040008280200140L, 0x04A0080040100040L, 0x0048100080080080L,
+        0x0148010100040810L, 0x0018040080800200L, 0x0400500400220821L, 0x0000208200010044L,
+        0x0080004000402000L, 0x0088804602002100L, 0x40B0002400200800L, 0x0002801004800802L,
+        0x0180800800800401L, 0x210C000200800480L, 0x4020014844001002L, 0x0100910062000084L,
+        0x60C0002040808000L, 0x4502201000444002L, 0x91D0040028002000L, 0x0A01002010050008L,
+        0x0408000804008080L, 0x8903040002008080L, 0x8000020004010100L, 0x0000040080420011L,
+        0x308004C000200340L, 0x0400400082200180L, 0x3208184200802200L, 0x8040810800100180L,
+        0x0038080100108500L, 0x9004000402008080L, 0x1004081082010400L, 0x4862800847002080L,
+        0x2288841200210042L, 0x200080102042010AL, 0x00430010402CA001L, 0x0053000420081001L,
+        0x0206000420081002L, 0x0881004804000231L, 0x0008221040A80104L, 0x0402040080402902L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+        0x1060142400A02600L, 0x500204010A220600L, 0x1010089A08408001L, 0x08020A0202210010L,
+        0x0802021000002110L, 0x0002011108080080L, 0x0500431888400008L, 0x4001088441201000L,
+        0xC000040832482A00L, 0x00001001020C1040L, 0x0004520084010004L, 0x2000244041809142L,
+        0x0800540422000400L, 0x0000020211A40140L, 0x0048010088208880L, 0x0010521044040400L,
+        0x0206206008300100L, 0x1050425214150400L, 0x0044000803461204L, 0x0048400404000884L,
+        0x824100A820080048L, 0x0021000210020100L, 0x6002200088040280L, 0x080A000281640A00L,
+        0x0208400408108109L, 0x1001248030902200L, 0x8241010610004A00L, 0x0088080160820102L,
+        0x2012002102008042L, 0x4230008008405000L, 0x0400A11040880800L, 0xC148420081090100L,
+        0x041802B00088A084L, 0x81280608001B2810L, 0x0048805004810402L, 0x4028440400180120L,
+        0x0100410040040040L, 0x0020244900008088L, 0x802404140A004100L, 0x000C008280002400L,
+        0x48040CA04C001810L, 0xC00A110460000200L, 0x0069001804100200L, 0x0000004208004080L,
+        0x0000080100408406L, 0x0014208802000110L, 0x200410008100A210L, 0x0002020410252300L,
+        0x8072080242101000L, 0x0001008801088402L, 0x4000023108080060L, 0x3048001084043000L,
+        0x0088041002022080L, 0x0020210401020480L, 0xCA0408508400808CL, 0x0508082822604000L,
+        0x2900462808021000L, 0x2040404202104222L, 0x022840088400A200L, 0x0010040901084810L,
+        0x6400000010020204L, 0x51021005A0144101L, 0x8020462464280A00L, 0x0288080828004018L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE = initMagics(ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, true);
+    private static final long[] BISHOP_TABLE = initMagics(BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, false);
+    
+    // For each pair of squares on a common row, column or diagonal: the squares strictly between them,
+    // and the whole line through both.  Both are empty for squares that are not in line.
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+    
+    static {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long ends = (1L << a) | (1L << b);
+                if (a != b && (rookAttacks(a, 0L) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = rookAttacks(a, 1L << b) & rookAttacks(b, 1L << a);
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ends;
+                } else if (a != b && (bishopAttacks(a, 0L) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = bishopAttacks(a, 1L << b) & bishopAttacks(b, 1L << a);
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ends;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Private constructor.  Only static methods are provided.
+     */
+    private Attacks() {
+    }
+    
+    /**
+     * Gets the squares attacked by a Knight.
+     * 
+     * @param square The square of the Knight.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+    
+    /**
+     * Gets the squares attacked by a King.
+     * 
+     * @param square The square of the King.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+    
+    /**
+     * Gets the squares attacked by a Pawn.  White pawns move towards row 0, black pawns towards row 7.
+     * 
+     * @param color The color of the Pawn (BoardState.WHITE or BoardState.BLACK).
+     * @param square The square of the Pawn.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long pawnAttacks(int color, int square) {
+        return PAWN_ATTACKS[color][square];
+    }
+    
+    /**
+     * Gets the squares attacked by a set of Pawns of the same color.
+     * 
+     * @param color The color of the Pawns.
+     * @param pawns A bitboard of the Pawns.
+     * @return A bitboard of every square attacked by at least one of the Pawns.
+     */
+    public static long pawnAttacks(int color, long pawns) {
+        if (color == BoardState.WHITE) {
+            return ((pawns >>> 9) & ~FILE_H) | ((pawns >>> 7) & ~FILE_A);
+        }
+        return ((pawns << 7) & ~FILE_H) | ((pawns << 9) & ~FILE_A);
+    }
+    
+    /**
+     * Gets the squares attacked by a Rook, stopping at the first occupied square in each direction.
+     * 
+     * @param square The square of the Rook.
+     * @param occupied A bitboard of every occupied square.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square]
+                + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+    
+    /**
+     * Gets the squares attacked by a Bishop, stopping at the first occupied square in each direction.
+     * 
+     * @param square The square of the Bishop.
+     * @param occupied A bitboard of every occupied square.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square]
+                + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+    
+    /**
+     * Gets the squares attacked by a Queen.
+     * 
+     * @param square The square of the Queen.
+     * @param occupied A bitboard of every occupied square.
+     * @return A bitboard of the attacked squares.
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+    
+    /**
+     * Gets the squares strictly between two squares on a common row, column or diagonal.
+     * 
+     * @param a The first square.
+     * @param b The second square.
+     * @return A bitboard of the squares between, empty if the squares are not in line or are next to each other.
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+    
+    /**
+     * Gets the whole row, column or diagonal through two squares, from edge to edge.
+     * 
+     * @param a The first square.
+     * @param b The second square.
+     * @return A bitboard of the line, including both squares, or empty if the squares are not in line.
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+    
+    /**
+     * Fills the attack table for one kind of slider, and the masks, shifts and offsets used to index it.
+     * 
+     * @param masks The array to fill with each square's mask of relevant blockers.
+     * @param magics Each square's multiplier.
+     * @param shifts The array to fill with each square's shift.
+     * @param offsets The array to fill with where each square's attacks start in the table.
+     * @param rook true for the Rook, false for the Bishop.
+     * @return The attack table.
+     * @throws IllegalStateException if a multiplier maps two different attack sets to one entry.
+     */
+    private static long[] initMagics(long[] masks, long[] magics, int[] shifts, int[] offsets, boolean rook) {
+        int[][] directions = rook ? new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}}
+                : new int[][] {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            long mask = 0L;
+            for (int[] direction : directions) {
+                mask |= rayMask(square, direction[0], direction[1]);
+            }
+            masks[square] = mask;
+            shifts[square] = 64 - Long.bitCount(mask);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(mask);
+        }
+        
+        long[] table = new long[size];
+        for (int square = 0; square < 64; square++) {
+            // Visits every arrangement of blockers on the mask
+            long blockers = 0L;
+            do {
+                long attacks = 0L;
+                for (int[] direction : directions) {
+                    attacks |= slide(square, blockers, direction[0], direction[1]);
+                }
+                int index = offsets[square] + (int) ((blockers * magics[square]) >>> shifts[square]);
+                // A slider always attacks something, so an empty entry has not been filled yet
+                if (table[index] != 0 && table[index] != attacks) {
+                    throw new IllegalStateException("Bad magic number for square " + square);
+                }
+                table[index] = attacks;
+                blockers = (blockers - masks[square]) & masks[square];
+            } while (blockers != 0);
+        }
+        return table;
+    }
+    
+    /**
+     * Gets the squares along a ray whose occupant can block a slider, which is all of them but the last one
+     * before the edge of the board.
+     * 
+     * @param square The starting square.
+     * @param rowDirection The row step (-1, 0 or 1).
+     * @param columnDirection The column step (-1, 0 or 1).
+     * @return A bitboard of the squares.
+     */
+    private static long rayMask(int square, int rowDirection, int columnDirection) {
+        long mask = 0L;
+        int row = (square >>> 3) + rowDirection;
+        int column = (square & 7) + columnDirection;
+        while (row + rowDirection >= 0 && row + rowDirection < 8
+                && column + columnDirection >= 0 && column + columnDirection < 8) {
+            mask |= 1L << (row * 8 + column);
+            row += rowDirection;
+            column += columnDirection;
+        }
+        return mask;
+    }
+    
+    /**
+     * Walks a single ray from a square until it leaves the board or reaches an occupied square.
+     * The occupied square is included, as it may be captured.
+     * 
+     * @param square The starting square.
+     * @param occupied A bitboard of every occupied square.
+     * @param rowDirection The row step (-1, 0 or 1).
+     * @param columnDirection The column step (-1, 0 or 1).
+     * @return A bitboard of the squares along the ray.
+     */
+    private static long slide(int square, long occupied, int rowDirection, int columnDirection) {
+        long attacks = 0L;
+        int row = (square >>> 3) + rowDirection;
+        int column = (square & 7) + columnDirection;
+        while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+            long bit = 1L << (row * 8 + column);
+            attacks |= bit;
+            if ((occupied & bit) != 0) {
+                break;
+            }
+            row += rowDirection;
+            column += columnDirection;
+        }
+        return attacks;
+    }
+}
\ No newline at end of file
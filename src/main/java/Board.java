@@ -1,6 +1,7 @@
 package main.java;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import main.java.pieces.*;
 import javafx.scene.paint.Color;
@@ -12,8 +13,15 @@ public class Board {
     
     
     private final Tile[][] board; // 2D array representing the tiles of the chess board.
-    private Piece.Player currentPlayer = Piece.Player.WHITE;
+    private final BoardState state = new BoardState(); // Bitboard position the game logic runs on.  Tiles mirror it for the view.
+    private final MoveGenerator moveGenerator = new MoveGenerator();
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES]; // Reused when looking up a move by its squares.
     private final List<Piece> capturedPieces = new ArrayList<>();
+    private String startFen = BoardState.STARTING_FEN; // Position the moves on the undo stack were played from.
+    
+    // Per move flags for taking moves back on the tiles.  The rest of the undo record is kept by the BoardState.
+    private static final int CAPTURED = 1; // The move added a piece to capturedPieces.
+    private int[] tileUndoStack = new int[256];
     
     private OnPieceCapturedListener pieceCapturedListener;
     
@@ -26,6 +34,114 @@ public class Board {
         placePieces();
     }
     
+    /**
+     * Constructor for a board set up in a given position.
+     * 
+     * @param fen The position as a FEN string.
+     */
+    private Board(String fen) {
+        this.board = new Tile[8][8];
+        initializeBoard();
+        setPosition(fen);
+    }
+    
+    /**
+     * Constructor for a copy of a board in its current position.
+     * 
+     * @param other The board to copy.
+     */
+    private Board(Board other) {
+        this.board = new Tile[8][8];
+        initializeBoard();
+        // Pieces are shared flyweights, so each tile only needs the reference copied
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                board[row][column].occupyTile(other.board[row][column].getPiece());
+            }
+        }
+        state.copyFrom(other.state);
+        startFen = other.startFen;
+        capturedPieces.addAll(other.capturedPieces);
+    }
+    
+    /**
+     * Creates a board set up in the position described by a FEN string.
+     * 
+     * @param fen The FEN string, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+     * @return The new board.
+     * @throws IllegalArgumentException if the string is not a valid FEN position.
+     */
+    public static Board fromFen(String fen) {
+        return new Board(fen);
+    }
+    
+    /**
+     * Creates a copy of the board for analysis, e.g. to try moves on without touching the game.
+     * Pieces are shared flyweights holding no position, so copying is a copy of the bitboard position
+     * and of one piece reference per tile; no piece is created.  The copy keeps the game's moves, so they can
+     * be taken back on it and repetitions of earlier positions are still seen.
+     * 
+     * @return The new board.
+     */
+    public Board copy() {
+        return new Board(this);
+    }
+    
+    /**
+     * Sets the board up in the position described by a FEN string, reusing its tiles.
+     * Pieces are shared flyweights, so loading many positions into one board allocates next to nothing.
+     * The captured pieces and the moves that can be taken back are cleared.
+     * 
+     * @param fen The FEN string, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+     * @throws IllegalArgumentException if the string is not a valid FEN position.  The board is then left unchanged.
+     */
+    public void setPosition(String fen) {
+        state.loadFen(fen);
+        startFen = fen;
+        
+        capturedPieces.clear();
+        for (int square = 0; square < 64; square++) {
+            int code = state.pieceAt(square);
+            Tile tile = board[square >>> 3][square & 7];
+            if (code == BoardState.NO_PIECE) {
+                tile.releaseTile();
+            } else {
+                tile.occupyTile(pieceFor(code));
+            }
+        }
+    }
+    
+    /**
+     * Gets the position the game started from: the one set with setPosition, or the usual starting position.
+     * 
+     * @return The starting position as a FEN string.
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+    
+    /**
+     * Gets the moves played since the starting position, oldest first.  Moves that were taken back are not included.
+     * 
+     * @return The encoded moves.
+     */
+    public int[] getMoveHistory() {
+        int[] moves = new int[state.getUndoCount()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = state.getMove(i);
+        }
+        return moves;
+    }
+    
+    /**
+     * Writes the current position as a FEN string.
+     * 
+     * @return The FEN string, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+     */
+    public String toFen() {
+        return state.toFen();
+    }
+    
     /**
      * Initializes the tiles of the chess board
      */
@@ -52,82 +168,298 @@ public class Board {
         }
     }
     
+    /**
+     * Returns the tile at a position.
+     * 
+     * @param position The position of the tile.
+     * @return The tile.
+     */
+    public Tile getTile(Position position) {
+        return board[position.getRow()][position.getColumn()];
+    }
+    
     /**
      * Places Chess pieces on their initial positions on the board.
      */
     private void placePieces() {
         // Places pawns
         for(int i = 0; i < 8; i++) {
-            board[1][i].occupyTile(new Pawn(Piece.Player.BLACK, new Position(1,i)));
-            board[6][i].occupyTile(new Pawn(Piece.Player.WHITE, new Position(6,i)));
+            placePiece(Pawn.of(Piece.Player.BLACK), 1, i);
+            placePiece(Pawn.of(Piece.Player.WHITE), 6, i);
         }
         // Places other pieces
         // Rooks
-        board[0][0].occupyTile(new Rook(Piece.Player.BLACK, new Position(0,0)));
-        board[0][7].occupyTile(new Rook(Piece.Player.BLACK, new Position(0,7)));
-        board[7][0].occupyTile(new Rook(Piece.Player.WHITE, new Position(7,0)));
-        board[7][7].occupyTile(new Rook(Piece.Player.WHITE, new Position(7,7)));
+        placePiece(Rook.of(Piece.Player.BLACK), 0, 0);
+        placePiece(Rook.of(Piece.Player.BLACK), 0, 7);
+        placePiece(Rook.of(Piece.Player.WHITE), 7, 0);
+        placePiece(Rook.of(Piece.Player.WHITE), 7, 7);
         
         // Knights
-        board[0][1].occupyTile(new Knight(Piece.Player.BLACK, new Position(0,1)));
-        board[0][6].occupyTile(new Knight(Piece.Player.BLACK, new Position(0, 6)));
-        board[7][1].occupyTile(new Knight(Piece.Player.WHITE, new Position(7,1)));
-        board[7][6].occupyTile(new Knight(Piece.Player.WHITE, new Position(7,6)));
+        placePiece(Knight.of(Piece.Player.BLACK), 0, 1);
+        placePiece(Knight.of(Piece.Player.BLACK), 0, 6);
+        placePiece(Knight.of(Piece.Player.WHITE), 7, 1);
+        placePiece(Knight.of(Piece.Player.WHITE), 7, 6);
         
         // Bishops
-        board[0][2].occupyTile(new Bishop(Piece.Player.BLACK, new Position(0,2)));
-        board[0][5].occupyTile(new Bishop(Piece.Player.BLACK, new Position(0,5)));
-        board[7][2].occupyTile(new Bishop(Piece.Player.WHITE, new Position(7,2)));
-        board[7][5].occupyTile(new Bishop(Piece.Player.WHITE, new Position(7,5)));
+        placePiece(Bishop.of(Piece.Player.BLACK), 0, 2);
+        placePiece(Bishop.of(Piece.Player.BLACK), 0, 5);
+        placePiece(Bishop.of(Piece.Player.WHITE), 7, 2);
+        placePiece(Bishop.of(Piece.Player.WHITE), 7, 5);
         
         // Queens
-        board[0][3].occupyTile(new Queen(Piece.Player.BLACK, new Position(0,3)));
-        board[7][3].occupyTile(new Queen(Piece.Player.WHITE, new Position(7,3)));
+        placePiece(Queen.of(Piece.Player.BLACK), 0, 3);
+        placePiece(Queen.of(Piece.Player.WHITE), 7, 3);
         
         // Kings
-        board[0][4].occupyTile(new King(Piece.Player.BLACK, new Position(0,4)));
-        board[7][4].occupyTile(new King(Piece.Player.WHITE, new Position(7,4)));
+        placePiece(King.of(Piece.Player.BLACK), 0, 4);
+        placePiece(King.of(Piece.Player.WHITE), 7, 4);
         
+        state.setCastlingRights(BoardState.ALL_CASTLING);
+    }
+    
+    /**
+     * Places a piece on a tile and records it in the bitboards.
+     * 
+     * @param piece The piece to place.
+     * @param row The row of the tile.
+     * @param column The column of the tile.
+     */
+    private void placePiece(Piece piece, int row, int column) {
+        board[row][column].occupyTile(piece);
+        state.putPiece(piece.getCode(), square(row, column));
+    }
+    
+    /**
+     * Gets the bitboard square index of a tile coordinate.
+     * 
+     * @param row The row of the tile.
+     * @param column The column of the tile.
+     * @return The square index, row * 8 + column.
+     */
+    private static int square(int row, int column) {
+        return row * 8 + column;
+    }
+    
+    /**
+     * Gets the shared piece for a bitboard piece code, e.g. when a Pawn promotes.
+     * 
+     * @param code The BoardState piece code.
+     * @return The piece.
+     */
+    private static Piece pieceFor(int code) {
+        Piece.Player color = BoardState.colorOf(code) == BoardState.WHITE ? Piece.Player.WHITE : Piece.Player.BLACK;
+        switch (BoardState.typeOf(code)) {
+            case BoardState.PAWN:
+                return Pawn.of(color);
+            case BoardState.KNIGHT:
+                return Knight.of(color);
+            case BoardState.BISHOP:
+                return Bishop.of(color);
+            case BoardState.ROOK:
+                return Rook.of(color);
+            case BoardState.QUEEN:
+                return Queen.of(color);
+            default:
+                return King.of(color);
+        }
+    }
+    
+    /**
+     * Gets the bitboard position the board's game logic runs on.
+     * The tiles are kept in sync with it, so it should only be changed through the board's methods.
+     * 
+     * @return The bitboard position.
+     */
+    public BoardState getState() {
+        return state;
     }
     
     /**
      * Executes a move from a start position to an end position.
+     * Castling, en passant and promotion are recognized from the squares; a Pawn reaching the last row becomes a Queen.
      * @param start The starting position of the pieces.
      * @param end The ending position of the piece.
      * @return true if the move is made successfully.
      */
     public boolean makeMove(Position start, Position end) {
-        Tile startTile = board[start.getRow()][start.getColumn()];
-        Tile endTile = board[end.getRow()][end.getColumn()];
+        return makeMove(encodeMove(start.getSquare(), end.getSquare()));
+    }
+    
+    /**
+     * Executes an encoded move, such as one produced by generateLegalMoves.
+     * The move is not validated and the current player is not switched.
+     * 
+     * @param move The encoded move.
+     * @return true if the move is made successfully.
+     */
+    public boolean makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Tile startTile = board[from >>> 3][from & 7];
+        Tile endTile = board[to >>> 3][to & 7];
         Piece piece = startTile.getPiece();
+        int undo = 0;
         
-        if (endTile.isOccupied()) {
-            capturedPieces.add(endTile.getPiece());
+        // An en passant capture takes the Pawn beside the starting square rather than the one on the end tile
+        Tile captureTile = Move.flags(move) == Move.EN_PASSANT ? board[from >>> 3][to & 7] : endTile;
+        if (captureTile.isOccupied()) {
+            undo |= CAPTURED;
+            capturedPieces.add(captureTile.getPiece());
             if (pieceCapturedListener != null) {
-                pieceCapturedListener.onPieceCaptured(endTile.getPiece());
+                pieceCapturedListener.onPieceCaptured(captureTile.getPiece());
             }
+            captureTile.releaseTile();
         }
         /**
          * Releases the start tile tile so that it is no longer occupied by a piece, then occupies the end tile with the same piece.
-         * Then updates the position in code.
+         * The piece holds no position of its own, so nothing else needs updating.
          */
         startTile.releaseTile();
         endTile.occupyTile(piece);
-        piece.setPosition(end);
         
-        /**
-         * If the piece that moved is a King or Pawn, sets hasMoved to true so that the King can no longer castle
-         * and the Pawn can no longer move two spaces forward.
-         */
-        if (piece instanceof King) {
-            ((King) piece).setHasMoved(true);
+        if (Move.isPromotion(move)) {
+            endTile.occupyTile(pieceFor(BoardState.pieceCode(piece.getColor().ordinal(), Move.promotionType(move))));
+        } else if (Move.isCastle(move)) {
+            // Moves the Rook to the other side of the King
+            int rookFrom = Move.flags(move) == Move.KING_CASTLE ? to + 1 : to - 2;
+            int rookTo = Move.flags(move) == Move.KING_CASTLE ? to - 1 : to + 1;
+            Piece rook = board[rookFrom >>> 3][rookFrom & 7].getPiece();
+            board[rookFrom >>> 3][rookFrom & 7].releaseTile();
+            board[rookTo >>> 3][rookTo & 7].occupyTile(rook);
         }
-        if (piece instanceof Pawn) {
-            ((Pawn) piece).setHasMoved(true);
+        int index = state.getUndoCount();
+        state.makeMove(move);
+        if (index == tileUndoStack.length) {
+            tileUndoStack = Arrays.copyOf(tileUndoStack, index * 2);
+        }
+        tileUndoStack[index] = undo;
+        return true;
+    }
+    
+    /**
+     * Takes back the last move made on the board, restoring the tiles, the captured piece,
+     * castling rights and the en passant square.  The current player is not switched.
+     * 
+     * @return true if a move was taken back, false if no move has been made.
+     */
+    public boolean unmakeMove() {
+        if (state.getUndoCount() == 0) {
+            return false;
+        }
+        int undo = tileUndoStack[state.getUndoCount() - 1];
+        int move = state.unmakeMove();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Tile startTile = board[from >>> 3][from & 7];
+        Tile endTile = board[to >>> 3][to & 7];
+        Piece piece = endTile.getPiece();
+        
+        if (Move.isPromotion(move)) {
+            // The Pawn was replaced when it promoted, so it is put back in place of the new piece
+            piece = pieceFor(BoardState.pieceCode(piece.getColor().ordinal(), BoardState.PAWN));
+        } else if (Move.isCastle(move)) {
+            // Moves the Rook back to its corner
+            int rookFrom = Move.flags(move) == Move.KING_CASTLE ? to + 1 : to - 2;
+            int rookTo = Move.flags(move) == Move.KING_CASTLE ? to - 1 : to + 1;
+            Piece rook = board[rookTo >>> 3][rookTo & 7].getPiece();
+            board[rookTo >>> 3][rookTo & 7].releaseTile();
+            board[rookFrom >>> 3][rookFrom & 7].occupyTile(rook);
+        }
+        endTile.releaseTile();
+        startTile.occupyTile(piece);
+        
+        if ((undo & CAPTURED) != 0) {
+            Piece captured = capturedPieces.remove(capturedPieces.size() - 1);
+            Tile captureTile = Move.flags(move) == Move.EN_PASSANT ? board[from >>> 3][to & 7] : endTile;
+            captureTile.occupyTile(captured);
         }
         return true;
     }
     
+    /**
+     * Builds the encoded move for a piece moving between two squares, working out the move flags from the position.
+     * 
+     * @param from The starting square.
+     * @param to The ending square.
+     * @return The encoded move.
+     */
+    private int encodeMove(int from, int to) {
+        int piece = state.pieceAt(from);
+        int type = BoardState.typeOf(piece);
+        boolean capture = state.pieceAt(to) != BoardState.NO_PIECE;
+        
+        if (type == BoardState.PAWN) {
+            if (to == state.getEnPassantSquare() && !capture) {
+                return Move.of(from, to, Move.EN_PASSANT);
+            }
+            if (to < 8 || to >= 56) {
+                return Move.promotion(from, to, BoardState.QUEEN, capture);
+            }
+            if (Math.abs(to - from) == 16) {
+                return Move.of(from, to, Move.DOUBLE_PAWN_PUSH);
+            }
+        } else if (type == BoardState.KING && Math.abs(to - from) == 2) {
+            return Move.of(from, to, to > from ? Move.KING_CASTLE : Move.QUEEN_CASTLE);
+        }
+        return Move.of(from, to, capture ? Move.CAPTURE : Move.QUIET);
+    }
+    
+    /**
+     * Generates every legal move for the current player in one pass.
+     * 
+     * @param moves The buffer to write the encoded moves into.  Must hold at least MoveGenerator.MAX_MOVES entries.
+     * @return The number of moves written.
+     */
+    public int generateLegalMoves(int[] moves) {
+        return moveGenerator.generateLegalMoves(state, moves);
+    }
+    
+    /**
+     * Counts the positions reached after exactly depth legal moves from the current position ("perft").
+     * The board itself is not changed.
+     * 
+     * @param depth The number of moves to play.
+     * @return The number of leaf positions.
+     */
+    public long perft(int depth) {
+        return new Perft().perft(state, depth);
+    }
+    
+    /**
+     * Finds the legal move of the current player between two squares.
+     * When a Pawn promotes, the promotion to a Queen is returned.
+     * 
+     * @param start The starting position of the piece.
+     * @param end The ending position of the piece.
+     * @return The encoded move, or Move.NONE if there is no such legal move.
+     */
+    public int findLegalMove(Position start, Position end) {
+        return findLegalMove(start, end, BoardState.QUEEN);
+    }
+    
+    /**
+     * Finds the legal move of the current player between two squares.
+     * 
+     * @param start The starting position of the piece.
+     * @param end The ending position of the piece.
+     * @param promotionType The BoardState piece type a Pawn promotes to, if the move is a promotion.
+     * @return The encoded move, or Move.NONE if there is no such legal move.
+     */
+    public int findLegalMove(Position start, Position end, int promotionType) {
+        int from = start.getSquare();
+        int to = end.getSquare();
+        // The generator knows the pins and checks, so the moves it lists need no testing on the board
+        int count = moveGenerator.generateLegalMoves(state, moveBuffer);
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (!Move.isPromotion(move) || Move.promotionType(move) == promotionType)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+    
     /**
      * Sets a listener for piece capture events.
      * 
@@ -141,7 +473,7 @@ public class Board {
      * Switches the current player.
      */
     public void switchPlayer() {
-        currentPlayer = (currentPlayer == Piece.Player.WHITE) ? Piece.Player.BLACK : Piece.Player.WHITE;
+        state.switchSide();
     }
     
     /**
@@ -149,7 +481,7 @@ public class Board {
      * @return The current player.
      */
     public Piece.Player getCurrentPlayer() {
-        return currentPlayer;
+        return state.getSideToMove() == BoardState.WHITE ? Piece.Player.WHITE : Piece.Player.BLACK;
     }
     
     /**
@@ -161,6 +493,25 @@ public class Board {
         return capturedPieces;
     }
     
+    /**
+     * Gets the Zobrist key of the current position, covering the pieces, the current player,
+     * castling rights and the en passant square.  Kept up to date as moves are made and unmade.
+     * 
+     * @return The 64-bit key.
+     */
+    public long getHash() {
+        return state.getHash();
+    }
+    
+    /**
+     * Checks if the current position has occurred before in this game.
+     * 
+     * @return true if the position is a repetition.
+     */
+    public boolean isRepetition() {
+        return state.isRepetition();
+    }
+    
     /**
      * Checks if the King of a specified color is in check.
      * 
@@ -168,20 +519,7 @@ public class Board {
      * @return true if the King is in check.
      */
     public boolean isKingInCheck(Piece.Player kingColor) {
-        Position kingPosition = findKingPosition(kingColor);
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Tile tile = board[row][col];
-                if (tile.isOccupied() && tile.getPiece().getColor() != kingColor) {
-                    Piece piece = tile.getPiece();
-                    if (piece.isValidMove(this, tile, board[kingPosition.getRow()][kingPosition.getColumn()])) {
-                        System.out.println("Check detected by piece: " + piece.getClass().getSimpleName());
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return state.isInCheck(kingColor.ordinal());
     }
     
     /**
@@ -191,171 +529,58 @@ public class Board {
      * @return true if the King is in double check.
      */
     public boolean isDoubleCheck(Piece.Player kingColor) {
-        int checkCount = 0;
-        Position kingPosition = findKingPosition(kingColor);
-        Tile kingTile = getTile(kingPosition.getRow(), kingPosition.getColumn());
-        
-        // L:oops through all of the pieces and checks if they can attack the King
-        for (Piece piece : getAllPiecesOfColor(oppositeColor(kingColor))) {
-            Tile pieceTile = getTile(piece.getPosition().getRow(), piece.getPosition().getColumn());
-            if (piece.isValidMove(this, pieceTile, kingTile)) {
-                checkCount++;
-                if (checkCount > 1) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-    
-    /**
-     * Gets all pieces of a specified color.
-     * 
-     * @param color The color of the pieces to retrieve.
-     * @return A list of pieces of the specified color.
-     */
-    private List<Piece> getAllPiecesOfColor(Piece.Player color) {
-        List<Piece> pieces = new ArrayList<>();
-        
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Tile currentTile = getTile(i, j);
-                if (currentTile.isOccupied()) {
-                    Piece piece = currentTile.getPiece();
-                    if (piece.getColor() == color) {
-                        pieces.add(piece);
-                    }
-                }
-            }
-        }
-        return pieces;
+        return Long.bitCount(state.getCheckers(kingColor.ordinal())) > 1;
     }
     
     /**
      * Processes a move, including validation and execution.
+     * The move must be one of the current player's legal moves, so it may not leave their King in check.
      * 
      * @param start The starting position of the piece
      * @param end The ending position of the piece
      * @return true if the move is valid and executed
      */
     public boolean processMove(Position start, Position end) {
-        Tile startTile = getTile(start.getRow(), start.getColumn());
-        Tile endTile = getTile(end.getRow(), end.getColumn());
-        Piece piece = startTile.getPiece();
-        
-        // Problem method - King cannot move into check, but is not required to move out of check.
-        // Possibly create a boolean?  While boolean is true, King cannot move unless it sets boolean to false?
-        if (piece != null && piece.isValidMove(this, startTile, endTile)) {
-            // Simulates the move
-            Piece capturedPiece = endTile.getPiece();
-            endTile.occupyTile(piece);
-            startTile.releaseTile();
-            piece.setPosition(end);
-            
-            boolean wasInCheck = isKingInCheck(currentPlayer);
-            boolean isInCheckAfterMove = isKingInCheck(currentPlayer);
-            
-            /// Undoes the move
-            startTile.occupyTile(piece);
-            endTile.occupyTile(capturedPiece);
-            piece.setPosition(start);
-            
-            if (wasInCheck && isInCheckAfterMove) {
-                // Move does not resolve check
-                return false;
-            } else if (!wasInCheck && isInCheckAfterMove) {
-                // Move puts King in check
-                return false;
-            }
-            
-            // If not in check, makes the move
-            makeMove(start, end);
-            return true;
-        }
-        return false;
+        return processMove(start, end, BoardState.QUEEN);
     }
     
     /**
-     * Determines the opposing color of the given player color.
+     * Processes a move, including validation and execution, promoting a Pawn to the given piece.
      * 
-     * @param color The color of the player.
-     * @return The opposing side's color.
-     */
-    private Piece.Player oppositeColor(Piece.Player color) {
-        return color == Piece.Player.WHITE ? Piece.Player.BLACK : Piece.Player.WHITE;
-    }
-    
-    /**
-     * Checks if the king is still in check after a simulated move.
-     * @param start The starting position of the move.
-     * @param end The ending position of the move.
-     * @return true if the King is still in check after the move.
-     */
-    // Tried using this to force King to move out of check.  Still struggling.
-    private boolean stillInCheckAfterMove(Position start, Position end) {
-        Tile startTile = getTile(start.getRow(), start.getColumn());
-        Tile endTile = getTile(end.getRow(), end.getColumn());
-        Piece movingPiece = startTile.getPiece();
-        Piece capturedPiece = endTile.getPiece();
-        
-        if (movingPiece == null) {
-            return false;
-        }
-        
-        // Simulates the move
-        endTile.occupyTile(movingPiece);
-        startTile.releaseTile();
-        movingPiece.setPosition(end);
-        
-        // Check if the Kind is still in check after this move
-        boolean stillInCheck = isKingInCheck(movingPiece.getColor());
-        
-        // Undo the move
-        startTile.occupyTile(movingPiece);
-        endTile.occupyTile(capturedPiece);
-        movingPiece.setPosition(start);
-        
-        return stillInCheck;
-    }
-    
-    /**
-     * Finds the position of the King of a specified color.
-     * 
-     * @param kingColor The color of the King to find.
-     * @return The position of the King, or null if not found.
+     * @param start The starting position of the piece
+     * @param end The ending position of the piece
+     * @param promotionType The BoardState piece type a Pawn promotes to, if the move is a promotion.
+     * @return true if the move is valid and executed
      */
-    private Position findKingPosition(Piece.Player kingColor) {
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Tile tile = board[row][col];
-                if (tile.isOccupied() && tile.getPiece() instanceof King && tile.getPiece().getColor() == kingColor) {
-                    return new Position(row, col);
-                }
-            }
+    public boolean processMove(Position start, Position end, int promotionType) {
+        int move = findLegalMove(start, end, promotionType);
+        if (move != Move.NONE) {
+            makeMove(move);
+            return true;
         }
-        return null;
+        return false;
     }
     
     /**
      * Checks if a position is under attack by pieces of a specified color.
+     * The King of the defending side is lifted off the board first, so a King stepping along
+     * a line of attack is still seen as attacked on the far side of its current square.
      * 
      * @param position The position to check.
      * @param kingColor The color of the King, opposite of the attacking pieces.
      * @return true if the position is under attack.
      */
     public boolean isPositionUnderAttack(Position position, Piece.Player kingColor) {
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Tile tile = board[row][col];
-                if (tile.isOccupied() && tile.getPiece().getColor() != kingColor) {
-                    Piece piece = tile.getPiece();
-                    // Avoid calling isValidMove on the King to prevent recursion
-                    if (!(piece instanceof King) && piece.isValidMove(this, tile, board[position.getRow()][position.getColumn()])) {
-                        return true;
-                    }
-                }
-            }
+        int color = kingColor.ordinal();
+        int target = position.getSquare();
+        if (state.isSquareAttacked(target, color ^ 1)) {
+            return true;
         }
-        return false;
+        // Lifting the King only opens a line behind it when a slider is already attacking it
+        if (!state.isInCheck(color)) {
+            return false;
+        }
+        long occupied = state.getAllPieces() & ~state.getPieces(color, BoardState.KING);
+        return state.attackersTo(target, color ^ 1, occupied) != 0;
     }
 }
\ No newline at end of file
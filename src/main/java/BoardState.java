@@ -0,0 +1,1051 @@
+package main.java;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position.
+ * Keeps one 64-bit board per piece type and color, plus occupancy masks for each side,
+ * so that attack and check detection can be done with bit operations instead of scanning tiles.
+ * Squares are numbered row * 8 + column, matching the tile coordinates used by Board.
+ */
+public class BoardState {
+    
+    // Side indices.  These match the ordinal of Piece.Player.
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    
+    // Piece type indices.  A piece code is color * 6 + type.
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+    
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+    
+    // Castling rights, stored as bit flags.
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+    
+    public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    
+    // FEN letter of each piece code.
+    private static final String FEN_PIECES = "PNBRQKpnbrqk";
+    
+    // Castling rights kept when a piece moves from or to each square.  Touching a King or Rook home square clears its rights.
+    private static final int[] CASTLING_MASK = new int[64];
+    
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[0] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[7] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[56] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[63] &= ~WHITE_KINGSIDE;
+    }
+    
+    private final long[] pieces = new long[12]; // One bitboard per piece code.
+    private final long[] occupancy = new long[2]; // One bitboard per side.
+    private long allPieces;
+    private final int[] mailbox = new int[64]; // Piece code on each square, or NO_PIECE.
+    private int sideToMove = WHITE;
+    private int castlingRights;
+    private int enPassantSquare = NO_SQUARE; // Square a Pawn may capture onto en passant, or NO_SQUARE.
+    private long hash; // Zobrist key of the position, updated with every change.
+    private long pawnHash; // Zobrist key of the Pawns alone, for caching Pawn structure evaluation.
+    private int halfmoveClock; // Moves since the last capture or Pawn move, for the fifty-move rule.
+    private int fullmoveNumber = 1; // Starts at 1 and goes up after each Black move.
+    
+    // Material and piece-square sums from White's point of view, and the game phase, updated with every change.
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+    
+    // Attack maps, kept up to date by every change to the pieces so check queries are single lookups.
+    private final long[] attacksFrom = new long[64]; // Squares attacked by the piece on each square, 0 if empty.
+    private final long[] sideAttacks = new long[2]; // Every square attacked by each side.
+    private final long[] checkers = new long[2]; // Enemy pieces giving check to each side's King.
+    private final int[] kingSquares = {NO_SQUARE, NO_SQUARE};
+    
+    // Undo records of the moves played, one packed int each: bits 0-15 the move, 16-19 the captured piece code + 1,
+    // 20-23 the castling rights before the move, 24-30 the en passant square before the move + 1 and 31 the side to move.
+    private int[] undoStack = new int[256];
+    private long[] hashHistory = new long[256]; // Key of the position before each move on the undo stack.
+    private int[] clockHistory = new int[256]; // Halfmove clock before each move on the undo stack.
+    private int undoCount;
+    
+    /**
+     * Constructor.  Creates an empty position with White to move.
+     */
+    public BoardState() {
+        clear();
+    }
+    
+    /**
+     * Removes every piece from the position.
+     */
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        occupancy[WHITE] = 0L;
+        occupancy[BLACK] = 0L;
+        allPieces = 0L;
+        Arrays.fill(mailbox, NO_PIECE);
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        Arrays.fill(attacksFrom, 0L);
+        Arrays.fill(sideAttacks, 0L);
+        Arrays.fill(checkers, 0L);
+        Arrays.fill(kingSquares, NO_SQUARE);
+        hash = 0L;
+        pawnHash = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        undoCount = 0;
+    }
+    
+    /**
+     * Copies another position into this one, including the moves played to reach it.  The copy can unmake
+     * those moves, and isRepetition sees the same game history, so a search on a copy still finds repetitions
+     * of positions played before the search started.  Only allocates when the other undo stack is longer.
+     * 
+     * @param other The position to copy.
+     */
+    public void copyFrom(BoardState other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        occupancy[WHITE] = other.occupancy[WHITE];
+        occupancy[BLACK] = other.occupancy[BLACK];
+        allPieces = other.allPieces;
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        System.arraycopy(other.attacksFrom, 0, attacksFrom, 0, attacksFrom.length);
+        sideAttacks[WHITE] = other.sideAttacks[WHITE];
+        sideAttacks[BLACK] = other.sideAttacks[BLACK];
+        checkers[WHITE] = other.checkers[WHITE];
+        checkers[BLACK] = other.checkers[BLACK];
+        kingSquares[WHITE] = other.kingSquares[WHITE];
+        kingSquares[BLACK] = other.kingSquares[BLACK];
+        hash = other.hash;
+        pawnHash = other.pawnHash;
+        midgameScore = other.midgameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        if (other.undoCount > undoStack.length) {
+            undoStack = new int[other.undoStack.length];
+            hashHistory = new long[other.undoStack.length];
+            clockHistory = new int[other.undoStack.length];
+        }
+        undoCount = other.undoCount;
+        System.arraycopy(other.undoStack, 0, undoStack, 0, undoCount);
+        System.arraycopy(other.hashHistory, 0, hashHistory, 0, undoCount);
+        System.arraycopy(other.clockHistory, 0, clockHistory, 0, undoCount);
+    }
+    
+    /**
+     * Sets up the position described by a FEN string, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+     * The halfmove clock and fullmove number may be left out, and default to 0 and 1.  Castling rights whose King
+     * or Rook is not on its home square are dropped, as is an en passant square no double Pawn push could have left.
+     * The string is read in place, without splitting it, so loading many positions creates no garbage.
+     * 
+     * @param fen The FEN string.
+     * @throws IllegalArgumentException if the string is not a valid FEN position.  The position is then left unchanged.
+     */
+    public void loadFen(String fen) {
+        // Finds where each field starts and ends
+        int placementStart = skipSpaces(fen, 0);
+        int placementEnd = skipField(fen, placementStart);
+        int sideStart = skipSpaces(fen, placementEnd);
+        int sideEnd = skipField(fen, sideStart);
+        int castlingStart = skipSpaces(fen, sideEnd);
+        int castlingEnd = skipField(fen, castlingStart);
+        int enPassantStart = skipSpaces(fen, castlingEnd);
+        int enPassantEnd = skipField(fen, enPassantStart);
+        int clockStart = skipSpaces(fen, enPassantEnd);
+        int clockEnd = skipField(fen, clockStart);
+        int moveNumberStart = skipSpaces(fen, clockEnd);
+        int moveNumberEnd = skipField(fen, moveNumberStart);
+        if (sideStart == sideEnd) {
+            throw new IllegalArgumentException("Incomplete FEN: " + fen);
+        }
+        
+        // Checks every field before changing anything
+        checkPlacement(fen, placementStart, placementEnd);
+        char side = fen.charAt(sideStart);
+        if (sideEnd - sideStart != 1 || (side != 'w' && side != 'b')) {
+            throw new IllegalArgumentException("Invalid FEN side to move: " + fen.substring(sideStart, sideEnd));
+        }
+        int rights = 0;
+        if (castlingEnd - castlingStart != 1 || fen.charAt(castlingStart) != '-') {
+            for (int i = castlingStart; i < castlingEnd; i++) {
+                int right = "KQkq".indexOf(fen.charAt(i));
+                if (right < 0 || (rights & (1 << right)) != 0) {
+                    throw new IllegalArgumentException("Invalid FEN castling rights: " + fen.substring(castlingStart, castlingEnd));
+                }
+                rights |= 1 << right;
+            }
+        }
+        int enPassant = NO_SQUARE;
+        if (enPassantEnd > enPassantStart && fen.charAt(enPassantStart) != '-') {
+            char file = enPassantEnd - enPassantStart == 2 ? fen.charAt(enPassantStart) : '?';
+            char rank = enPassantEnd - enPassantStart == 2 ? fen.charAt(enPassantStart + 1) : '?';
+            if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fen.substring(enPassantStart, enPassantEnd));
+            }
+            enPassant = (file - 'a') + 8 * ('8' - rank);
+        }
+        int clock = parseCounter(fen, clockStart, clockEnd, 0);
+        int moveNumber = parseCounter(fen, moveNumberStart, moveNumberEnd, 1);
+        
+        clear();
+        int square = 0;
+        for (int i = placementStart; i < placementEnd; i++) {
+            char c = fen.charAt(i);
+            if (c >= '1' && c <= '8') {
+                square += c - '0';
+            } else if (c != '/') {
+                place(FEN_PIECES.indexOf(c), square++);
+            }
+        }
+        updateAttacks(allPieces);
+        sideToMove = side == 'b' ? BLACK : WHITE;
+        castlingRights = rights & homeCastlingRights();
+        enPassantSquare = isPossibleEnPassant(enPassant) ? enPassant : NO_SQUARE;
+        halfmoveClock = clock;
+        fullmoveNumber = Math.max(1, moveNumber);
+        hash = computeHash();
+    }
+    
+    /**
+     * Writes the position as a FEN string, the reverse of loadFen.
+     * 
+     * @return The FEN string, e.g. "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int piece = mailbox[row * 8 + column];
+                if (piece == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(FEN_PIECES.charAt(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & (1 << i)) != 0) {
+                fen.append("KQkq".charAt(i));
+            }
+        }
+        fen.append(' ');
+        if (enPassantSquare == NO_SQUARE) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + (enPassantSquare & 7))).append((char) ('8' - (enPassantSquare >>> 3)));
+        }
+        return fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+    
+    /**
+     * Checks if an en passant square could have been left by the other side's last move: it is on the square a Pawn
+     * skipped, with that Pawn in front of it and the square it started from empty.
+     * 
+     * @param square The en passant square, or NO_SQUARE.
+     * @return true if it is a possible en passant square.
+     */
+    private boolean isPossibleEnPassant(int square) {
+        if (square == NO_SQUARE) {
+            return false;
+        }
+        // The side not to move pushed: a Black Pawn skips the sixth rank, row 2, and a White Pawn the third, row 5
+        int pusher = sideToMove ^ 1;
+        int row = pusher == BLACK ? 2 : 5;
+        int forward = pusher == BLACK ? 8 : -8;
+        return square >>> 3 == row
+                && mailbox[square] == NO_PIECE
+                && mailbox[square - forward] == NO_PIECE
+                && mailbox[square + forward] == pieceCode(pusher, PAWN);
+    }
+    
+    /**
+     * Works out which castling rights the pieces allow: those whose King and Rook are both on their home squares.
+     * 
+     * @return A combination of the castling right flags.
+     */
+    private int homeCastlingRights() {
+        int rights = 0;
+        if (mailbox[60] == pieceCode(WHITE, KING)) {
+            rights |= mailbox[63] == pieceCode(WHITE, ROOK) ? WHITE_KINGSIDE : 0;
+            rights |= mailbox[56] == pieceCode(WHITE, ROOK) ? WHITE_QUEENSIDE : 0;
+        }
+        if (mailbox[4] == pieceCode(BLACK, KING)) {
+            rights |= mailbox[7] == pieceCode(BLACK, ROOK) ? BLACK_KINGSIDE : 0;
+            rights |= mailbox[0] == pieceCode(BLACK, ROOK) ? BLACK_QUEENSIDE : 0;
+        }
+        return rights;
+    }
+    
+    /**
+     * Checks the piece placement field of a FEN string: eight rows of eight squares, with known piece letters
+     * and exactly one King for each side.
+     * 
+     * @param fen The FEN string.
+     * @param start The index of the first character of the field.
+     * @param end The index after the last character of the field.
+     * @throws IllegalArgumentException if the field is not valid.
+     */
+    private static void checkPlacement(String fen, int start, int end) {
+        int square = 0;
+        int rows = 1;
+        int whiteKings = 0;
+        int blackKings = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (square != rows * 8) {
+                    throw new IllegalArgumentException("Invalid FEN placement: " + fen.substring(start, end));
+                }
+                rows++;
+            } else if (c >= '1' && c <= '8') {
+                square += c - '0';
+            } else if (FEN_PIECES.indexOf(c) >= 0) {
+                square++;
+                whiteKings += c == 'K' ? 1 : 0;
+                blackKings += c == 'k' ? 1 : 0;
+            } else {
+                throw new IllegalArgumentException("Invalid FEN placement: " + fen.substring(start, end));
+            }
+        }
+        if (square != 64 || rows != 8) {
+            throw new IllegalArgumentException("Invalid FEN placement: " + fen.substring(start, end));
+        }
+        if (whiteKings != 1 || blackKings != 1) {
+            throw new IllegalArgumentException("FEN placement needs one King per side: " + fen.substring(start, end));
+        }
+    }
+    
+    /**
+     * Reads one of the move counters of a FEN string.
+     * 
+     * @param fen The FEN string.
+     * @param start The index of the first character of the field.
+     * @param end The index after the last character of the field.
+     * @param missing The value to use if the field is left out.
+     * @return The counter.
+     * @throws IllegalArgumentException if the field is not a number.
+     */
+    private static int parseCounter(String fen, int start, int end, int missing) {
+        if (start == end) {
+            return missing;
+        }
+        int value = Integer.parseInt(fen, start, end, 10);
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid FEN move counter: " + fen.substring(start, end));
+        }
+        return value;
+    }
+    
+    /**
+     * Skips the spaces before a FEN field.
+     * 
+     * @param fen The FEN string.
+     * @param index The index to start at.
+     * @return The index of the first character that is not whitespace, or the length of the string.
+     */
+    private static int skipSpaces(String fen, int index) {
+        while (index < fen.length() && Character.isWhitespace(fen.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+    
+    /**
+     * Skips over a FEN field.
+     * 
+     * @param fen The FEN string.
+     * @param index The index of the first character of the field.
+     * @return The index after the last character of the field.
+     */
+    private static int skipField(String fen, int index) {
+        while (index < fen.length() && !Character.isWhitespace(fen.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+    
+    /**
+     * Builds a piece code from a color and a piece type.
+     * 
+     * @param color The color of the piece.
+     * @param type The type of the piece.
+     * @return The piece code.
+     */
+    public static int pieceCode(int color, int type) {
+        return color * 6 + type;
+    }
+    
+    /**
+     * Gets the color of a piece code.
+     * 
+     * @param piece The piece code.
+     * @return The color of the piece.
+     */
+    public static int colorOf(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+    
+    /**
+     * Gets the type of a piece code.
+     * 
+     * @param piece The piece code.
+     * @return The type of the piece.
+     */
+    public static int typeOf(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+    
+    /**
+     * Places a piece on an empty square.
+     * 
+     * @param piece The piece code.
+     * @param square The square to place the piece on.
+     */
+    public void putPiece(int piece, int square) {
+        place(piece, square);
+        updateAttacks(1L << square);
+    }
+    
+    /**
+     * Removes the piece on a square.
+     * 
+     * @param square The square to clear.
+     * @return The piece code that was removed, or NO_PIECE if the square was empty.
+     */
+    public int removePiece(int square) {
+        int piece = lift(square);
+        updateAttacks(1L << square);
+        return piece;
+    }
+    
+    /**
+     * Moves a piece from one square to an empty square.
+     * 
+     * @param from The square the piece is on.
+     * @param to The square to move the piece to.
+     */
+    public void movePiece(int from, int to) {
+        shift(from, to);
+        updateAttacks((1L << from) | (1L << to));
+    }
+    
+    /**
+     * Places a piece without updating the attack maps.
+     * 
+     * @param piece The piece code.
+     * @param square The empty square to place the piece on.
+     */
+    private void place(int piece, int square) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        occupancy[colorOf(piece)] |= bit;
+        allPieces |= bit;
+        mailbox[square] = piece;
+        hash ^= Zobrist.pieceKey(piece, square);
+        midgameScore += PieceSquareTables.midgame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.PHASE_WEIGHTS[typeOf(piece)];
+        if (typeOf(piece) == PAWN) {
+            pawnHash ^= Zobrist.pieceKey(piece, square);
+        } else if (typeOf(piece) == KING) {
+            kingSquares[colorOf(piece)] = square;
+        }
+    }
+    
+    /**
+     * Removes a piece without updating the attack maps.
+     * 
+     * @param square The square to clear.
+     * @return The piece code that was removed, or NO_PIECE if the square was empty.
+     */
+    private int lift(int square) {
+        int piece = mailbox[square];
+        if (piece != NO_PIECE) {
+            long bit = ~(1L << square);
+            pieces[piece] &= bit;
+            occupancy[colorOf(piece)] &= bit;
+            allPieces &= bit;
+            mailbox[square] = NO_PIECE;
+            hash ^= Zobrist.pieceKey(piece, square);
+            midgameScore -= PieceSquareTables.midgame(piece, square);
+            endgameScore -= PieceSquareTables.endgame(piece, square);
+            phase -= PieceSquareTables.PHASE_WEIGHTS[typeOf(piece)];
+            if (typeOf(piece) == PAWN) {
+                pawnHash ^= Zobrist.pieceKey(piece, square);
+            } else if (typeOf(piece) == KING) {
+                kingSquares[colorOf(piece)] = NO_SQUARE;
+            }
+        }
+        return piece;
+    }
+    
+    /**
+     * Moves a piece without updating the attack maps.
+     * 
+     * @param from The square the piece is on.
+     * @param to The empty square to move the piece to.
+     */
+    private void shift(int from, int to) {
+        int piece = mailbox[from];
+        long fromTo = (1L << from) | (1L << to);
+        pieces[piece] ^= fromTo;
+        occupancy[colorOf(piece)] ^= fromTo;
+        allPieces ^= fromTo;
+        mailbox[from] = NO_PIECE;
+        mailbox[to] = piece;
+        hash ^= Zobrist.pieceKey(piece, from) ^ Zobrist.pieceKey(piece, to);
+        midgameScore += PieceSquareTables.midgame(piece, to) - PieceSquareTables.midgame(piece, from);
+        endgameScore += PieceSquareTables.endgame(piece, to) - PieceSquareTables.endgame(piece, from);
+        if (typeOf(piece) == PAWN) {
+            pawnHash ^= Zobrist.pieceKey(piece, from) ^ Zobrist.pieceKey(piece, to);
+        } else if (typeOf(piece) == KING) {
+            kingSquares[colorOf(piece)] = to;
+        }
+    }
+    
+    /**
+     * Brings the attack maps up to date after the occupancy of some squares changed.
+     * Only the pieces on the changed squares and the sliding pieces whose rays touched a changed square
+     * can attack differently, so only those are recomputed.
+     * 
+     * @param changed A bitboard of the squares whose occupant changed.
+     */
+    private void updateAttacks(long changed) {
+        long sliders = (pieces[BISHOP] | pieces[ROOK] | pieces[QUEEN]
+                | pieces[6 + BISHOP] | pieces[6 + ROOK] | pieces[6 + QUEEN]) & ~changed;
+        while (sliders != 0) {
+            int square = Long.numberOfTrailingZeros(sliders);
+            sliders &= sliders - 1;
+            if ((attacksFrom[square] & changed) != 0) {
+                attacksFrom[square] = computeAttacks(mailbox[square], square);
+            }
+        }
+        while (changed != 0) {
+            int square = Long.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            attacksFrom[square] = mailbox[square] == NO_PIECE ? 0L : computeAttacks(mailbox[square], square);
+        }
+        
+        // Rebuilds each side's attack map and the pieces giving check from the per-piece attacks
+        for (int color = WHITE; color <= BLACK; color++) {
+            long enemyKing = pieces[(color ^ 1) * 6 + KING];
+            long attacks = 0L;
+            long givingCheck = 0L;
+            long own = occupancy[color];
+            while (own != 0) {
+                int square = Long.numberOfTrailingZeros(own);
+                own &= own - 1;
+                attacks |= attacksFrom[square];
+                if ((attacksFrom[square] & enemyKing) != 0) {
+                    givingCheck |= 1L << square;
+                }
+            }
+            sideAttacks[color] = attacks;
+            checkers[color ^ 1] = givingCheck;
+        }
+    }
+    
+    /**
+     * Computes the squares attacked by a piece with the current occupancy.
+     * 
+     * @param piece The piece code.
+     * @param square The square of the piece.
+     * @return A bitboard of the attacked squares.
+     */
+    private long computeAttacks(int piece, int square) {
+        switch (typeOf(piece)) {
+            case PAWN:
+                return Attacks.pawnAttacks(colorOf(piece), square);
+            case KNIGHT:
+                return Attacks.knightAttacks(square);
+            case BISHOP:
+                return Attacks.bishopAttacks(square, allPieces);
+            case ROOK:
+                return Attacks.rookAttacks(square, allPieces);
+            case QUEEN:
+                return Attacks.queenAttacks(square, allPieces);
+            default:
+                return Attacks.kingAttacks(square);
+        }
+    }
+    
+    /**
+     * Gets the piece on a square.
+     * 
+     * @param square The square to look at.
+     * @return The piece code, or NO_PIECE if the square is empty.
+     */
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+    
+    /**
+     * Gets the bitboard of a piece type and color.
+     * 
+     * @param color The color of the pieces.
+     * @param type The type of the pieces.
+     * @return A bitboard of the squares occupied by those pieces.
+     */
+    public long getPieces(int color, int type) {
+        return pieces[color * 6 + type];
+    }
+    
+    /**
+     * Gets the squares occupied by one side.
+     * 
+     * @param color The side.
+     * @return A bitboard of the squares occupied by that side.
+     */
+    public long getOccupancy(int color) {
+        return occupancy[color];
+    }
+    
+    /**
+     * Gets every occupied square.
+     * 
+     * @return A bitboard of every occupied square.
+     */
+    public long getAllPieces() {
+        return allPieces;
+    }
+    
+    /**
+     * Gets the side to move.
+     * 
+     * @return WHITE or BLACK.
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+    
+    /**
+     * Hands the move to the other side.
+     */
+    public void switchSide() {
+        sideToMove ^= 1;
+        hash ^= Zobrist.SIDE;
+    }
+    
+    /**
+     * Sets the side to move.
+     * 
+     * @param sideToMove WHITE or BLACK.
+     */
+    public void setSideToMove(int sideToMove) {
+        if (sideToMove != this.sideToMove) {
+            switchSide();
+        }
+    }
+    
+    /**
+     * Gets the castling rights that are still available.
+     * 
+     * @return A combination of the castling right flags.
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+    
+    /**
+     * Sets the castling rights.
+     * 
+     * @param castlingRights A combination of the castling right flags.
+     */
+    public void setCastlingRights(int castlingRights) {
+        hash ^= Zobrist.castlingKey(this.castlingRights) ^ Zobrist.castlingKey(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+    
+    /**
+     * Gets the square a Pawn may capture onto en passant.
+     * 
+     * @return The en passant square, or NO_SQUARE if the last move was not a double Pawn push.
+     */
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+    
+    /**
+     * Sets the square a Pawn may capture onto en passant.
+     * 
+     * @param enPassantSquare The en passant square, or NO_SQUARE.
+     */
+    public void setEnPassantSquare(int enPassantSquare) {
+        hash ^= Zobrist.enPassantKey(this.enPassantSquare) ^ Zobrist.enPassantKey(enPassantSquare);
+        this.enPassantSquare = enPassantSquare;
+    }
+    
+    /**
+     * Plays a move, including the Rook half of castling, the Pawn taken en passant and promotions.
+     * Updates castling rights, the en passant square and the move counters.  The side to move is not changed:
+     * callers hand the move over with switchSide, and may switch back before or after unmakeMove.
+     * Everything needed to take the move back is pushed onto the undo stack, see unmakeMove.
+     * 
+     * @param move The encoded move.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int moving = mailbox[from];
+        int color = colorOf(moving);
+        long changed = (1L << from) | (1L << to);
+        long previousHash = hash;
+        
+        int captured;
+        if (flags == Move.EN_PASSANT) {
+            // The captured Pawn is beside the moving Pawn, not on the ending square
+            int captureSquare = color == WHITE ? to + 8 : to - 8;
+            captured = lift(captureSquare);
+            changed |= 1L << captureSquare;
+        } else {
+            captured = lift(to);
+        }
+        if (undoCount == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoCount * 2);
+            hashHistory = Arrays.copyOf(hashHistory, undoCount * 2);
+            clockHistory = Arrays.copyOf(clockHistory, undoCount * 2);
+        }
+        hashHistory[undoCount] = previousHash;
+        clockHistory[undoCount] = halfmoveClock;
+        undoStack[undoCount++] = (move & 0xFFFF) | ((captured + 1) << 16)
+                | (castlingRights << 20) | ((enPassantSquare + 1) << 24) | (sideToMove << 31);
+        shift(from, to);
+        halfmoveClock = captured != NO_PIECE || typeOf(moving) == PAWN ? 0 : halfmoveClock + 1;
+        if (color == BLACK) {
+            fullmoveNumber++;
+        }
+        
+        hash ^= Zobrist.enPassantKey(enPassantSquare) ^ Zobrist.castlingKey(castlingRights);
+        enPassantSquare = NO_SQUARE;
+        if (Move.isPromotion(move)) {
+            lift(to);
+            place(pieceCode(color, Move.promotionType(move)), to);
+        } else if (flags == Move.DOUBLE_PAWN_PUSH) {
+            enPassantSquare = (from + to) >>> 1;
+        } else if (flags == Move.KING_CASTLE) {
+            shift(to + 1, to - 1);
+            changed |= (1L << (to + 1)) | (1L << (to - 1));
+        } else if (flags == Move.QUEEN_CASTLE) {
+            shift(to - 2, to + 1);
+            changed |= (1L << (to - 2)) | (1L << (to + 1));
+        }
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        hash ^= Zobrist.enPassantKey(enPassantSquare) ^ Zobrist.castlingKey(castlingRights);
+        updateAttacks(changed);
+    }
+    
+    /**
+     * Takes back the last move played with makeMove, restoring the captured piece, castling rights, en passant square
+     * and move counters.  Like makeMove it leaves the side to move alone, so the key matches whichever side is to move
+     * whether switchSide is called before or after it.
+     * 
+     * @return The move that was taken back.
+     * @throws IllegalStateException if there is no move to take back.
+     */
+    public int unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        int record = undoStack[--undoCount];
+        int move = record & 0xFFFF;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        long changed = (1L << from) | (1L << to);
+        
+        if (Move.isPromotion(move)) {
+            int color = colorOf(lift(to));
+            place(pieceCode(color, PAWN), to);
+        } else if (flags == Move.KING_CASTLE) {
+            shift(to - 1, to + 1);
+            changed |= (1L << (to + 1)) | (1L << (to - 1));
+        } else if (flags == Move.QUEEN_CASTLE) {
+            shift(to + 1, to - 2);
+            changed |= (1L << (to - 2)) | (1L << (to + 1));
+        }
+        shift(to, from);
+        
+        int captured = ((record >>> 16) & 0xF) - 1;
+        if (captured != NO_PIECE) {
+            int captureSquare = to;
+            if (flags == Move.EN_PASSANT) {
+                captureSquare = colorOf(captured) == BLACK ? to + 8 : to - 8;
+                changed |= 1L << captureSquare;
+            }
+            place(captured, captureSquare);
+        }
+        castlingRights = (record >>> 20) & 0xF;
+        enPassantSquare = ((record >>> 24) & 0x7F) - 1;
+        hash = hashHistory[undoCount];
+        if (record >>> 31 != sideToMove) {
+            // The saved key has the side that was to move when the move was made
+            hash ^= Zobrist.SIDE;
+        }
+        halfmoveClock = clockHistory[undoCount];
+        if (colorOf(mailbox[from]) == BLACK) {
+            fullmoveNumber--;
+        }
+        updateAttacks(changed);
+        return move;
+    }
+    
+    /**
+     * Gets the number of moves that can be taken back with unmakeMove.
+     * 
+     * @return The number of moves on the undo stack.
+     */
+    public int getUndoCount() {
+        return undoCount;
+    }
+    
+    /**
+     * Gets a move on the undo stack.
+     * 
+     * @param index The index of the move, 0 for the first move played.
+     * @return The encoded move.
+     * @throws IndexOutOfBoundsException if the index is not less than getUndoCount().
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= undoCount) {
+            throw new IndexOutOfBoundsException("No move " + index + " on the undo stack");
+        }
+        return undoStack[index] & 0xFFFF;
+    }
+    
+    /**
+     * Gets the Zobrist key of the position.  Equal positions, with the same side to move, castling rights
+     * and en passant square, have equal keys whatever moves led to them.
+     * 
+     * @return The 64-bit key.
+     */
+    public long getHash() {
+        return hash;
+    }
+    
+    /**
+     * Gets the sum of the middlegame material and piece-square values of every piece.
+     * 
+     * @return The sum in centipawns, positive when White is better.
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+    
+    /**
+     * Gets the sum of the endgame material and piece-square values of every piece.
+     * 
+     * @return The sum in centipawns, positive when White is better.
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+    
+    /**
+     * Gets the game phase: how much non-Pawn material is left, weighted by PieceSquareTables.PHASE_WEIGHTS.
+     * 
+     * @return The phase, PieceSquareTables.MAX_PHASE at the start of the game (more after extra promotions),
+     *         down to 0 with only Kings and Pawns.
+     */
+    public int getPhase() {
+        return phase;
+    }
+    
+    /**
+     * Gets the Zobrist key of the Pawns alone.  Positions with the same Pawns on the same squares
+     * have the same key, whatever the other pieces.
+     * 
+     * @return The 64-bit Pawn key.
+     */
+    public long getPawnHash() {
+        return pawnHash;
+    }
+    
+    /**
+     * Gets the number of moves since the last capture or Pawn move.
+     * 
+     * @return The halfmove clock.
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+    
+    /**
+     * Gets the number of the current full move.  It starts at 1 and goes up after each Black move.
+     * 
+     * @return The fullmove number.
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+    
+    /**
+     * Checks if the position has already occurred since the undo stack was started, e.g. for draw detection.
+     * Only positions since the last capture or Pawn move are compared, as none before it can come back.
+     * 
+     * @return true if an earlier position on the undo stack has the same key.
+     */
+    public boolean isRepetition() {
+        for (int i = undoCount - 1; i >= Math.max(0, undoCount - halfmoveClock); i--) {
+            if (hashHistory[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Computes the Zobrist key of the position from scratch.
+     * 
+     * @return The 64-bit key.
+     */
+    public long computeHash() {
+        long key = 0L;
+        for (int square = 0; square < 64; square++) {
+            if (mailbox[square] != NO_PIECE) {
+                key ^= Zobrist.pieceKey(mailbox[square], square);
+            }
+        }
+        if (sideToMove == BLACK) {
+            key ^= Zobrist.SIDE;
+        }
+        return key ^ Zobrist.castlingKey(castlingRights) ^ Zobrist.enPassantKey(enPassantSquare);
+    }
+    
+    /**
+     * Computes the Zobrist key of the Pawns from scratch.
+     * 
+     * @return The 64-bit Pawn key.
+     */
+    public long computePawnHash() {
+        long key = 0L;
+        for (int color = WHITE; color <= BLACK; color++) {
+            long pawns = pieces[pieceCode(color, PAWN)];
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                key ^= Zobrist.pieceKey(pieceCode(color, PAWN), square);
+            }
+        }
+        return key;
+    }
+    
+    /**
+     * Gets the square of a side's King.
+     * 
+     * @param color The side.
+     * @return The King's square, or NO_SQUARE if that side has no King.
+     */
+    public int kingSquare(int color) {
+        return kingSquares[color];
+    }
+    
+    /**
+     * Gets the squares attacked by the piece on a square.
+     * 
+     * @param square The square.
+     * @return A bitboard of the attacked squares, empty if the square is empty.
+     */
+    public long getAttacksFrom(int square) {
+        return attacksFrom[square];
+    }
+    
+    /**
+     * Gets every square attacked by a side.
+     * 
+     * @param color The attacking side.
+     * @return A bitboard of the attacked squares.
+     */
+    public long getAttacks(int color) {
+        return sideAttacks[color];
+    }
+    
+    /**
+     * Gets the enemy pieces giving check to a side's King.
+     * 
+     * @param color The side of the King.
+     * @return A bitboard of the checking pieces, empty if the King is not in check.
+     */
+    public long getCheckers(int color) {
+        return checkers[color];
+    }
+    
+    /**
+     * Gets every piece of a side that attacks a square.
+     * Unlike the attack maps, this works for any occupancy, e.g. with a piece lifted off the board.
+     * 
+     * @param square The square being attacked.
+     * @param byColor The attacking side.
+     * @param occupied The occupancy used to block sliding pieces.
+     * @return A bitboard of the attacking pieces.
+     */
+    public long attackersTo(int square, int byColor, long occupied) {
+        int base = byColor * 6;
+        long rooksQueens = pieces[base + ROOK] | pieces[base + QUEEN];
+        long bishopsQueens = pieces[base + BISHOP] | pieces[base + QUEEN];
+        // A pawn of the attacking side attacks this square exactly when a defending pawn here would attack it.
+        return (Attacks.pawnAttacks(byColor ^ 1, square) & pieces[base + PAWN])
+                | (Attacks.knightAttacks(square) & pieces[base + KNIGHT])
+                | (Attacks.kingAttacks(square) & pieces[base + KING])
+                | (Attacks.rookAttacks(square, occupied) & rooksQueens)
+                | (Attacks.bishopAttacks(square, occupied) & bishopsQueens);
+    }
+    
+    /**
+     * Checks if a square is attacked by a side.
+     * 
+     * @param square The square to check.
+     * @param byColor The attacking side.
+     * @return true if at least one piece of that side attacks the square.
+     */
+    public boolean isSquareAttacked(int square, int byColor) {
+        return (sideAttacks[byColor] & (1L << square)) != 0;
+    }
+    
+    /**
+     * Checks if a side's King is in check.
+     * 
+     * @param color The side of the King.
+     * @return true if the King is attacked.
+     */
+    public boolean isInCheck(int color) {
+        return checkers[color] != 0;
+    }
+}
\ No newline at end of file
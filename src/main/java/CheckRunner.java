@@ -0,0 +1,430 @@
+package main.java;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import main.java.archive.GameArchiveReader;
+import main.java.archive.GameArchiveWriter;
+import main.java.archive.PositionIndex;
+import main.java.book.PolyglotKeys;
+import main.java.pgn.PgnGame;
+import main.java.pgn.PgnReader;
+
+/**
+ * Command-line regression checks for FEN loading, the game formats and opening book keys.
+ * Checks that bad FEN strings are rejected or repaired rather than crashing move generation, reads a small
+ * PGN file covering the reader's edge cases, converts it to a game archive and back to PGN, looks every position
+ * up in an index of the archive, and compares Polyglot keys with the published test keys.
+ * The files are written to a temporary directory and deleted after.
+ * Exits with status 1 if any check fails.
+ * 
+ * Usage: CheckRunner
+ */
+public class CheckRunner {
+    
+    // Games for the PGN reader: NAGs, comments, nested variations and an escape line; a game with no result
+    // before the next game's tags; a FEN start with en passant, castling and promotion; a game with an
+    // illegal move, which is skipped; and a last game with annotations and no result at the end of the file.
+    private static final String PGN = String.join("\n",
+            "[Event \"Checks\"]",
+            "[Site \"?\"]",
+            "[Date \"2024.03.??\"]",
+            "[Round \"1\"]",
+            "[White \"Alpha\"]",
+            "[Black \"Beta\"]",
+            "[Result \"1-0\"]",
+            "",
+            "1. e4 $1 e5 {A comment (not a variation)} 2. Nf3 (2. f4 exf4 (2... d5 3. exd5) 3. Nf3) 2... Nc6",
+            "% An escape line 3. d4",
+            "3. Bb5 a6 ; the rest of the line 4. d4",
+            "4. Ba4 Nf6 5. O-O Be7 1-0",
+            "",
+            "[White \"Gamma\"]",
+            "[Black \"Delta\"]",
+            "",
+            "1. d4 d5 2. c4",
+            "",
+            "[White \"Epsilon\"]",
+            "[Black \"Zeta\"]",
+            "[Result \"0-1\"]",
+            "[SetUp \"1\"]",
+            "[FEN \"r3k2r/1P6/8/8/3pP3/8/8/R3K2R b KQkq e3 0 1\"]",
+            "",
+            "1... dxe3 2. O-O-O O-O 3. bxa8=Q Rxa8 0-1",
+            "",
+            "[White \"Illegal\"]",
+            "[Black \"Moves\"]",
+            "",
+            "1. e4 e5 2. Ke3 Nc6 *",
+            "",
+            "[White \"Eta\"]",
+            "[Black \"Theta\"]",
+            "",
+            "1. f3 e5 2. g4?? Qh4#",
+            "");
+    
+    // The readable games of PGN: White, the result and the moves in coordinate notation.
+    private static final String[][] GAMES = {
+        {"Alpha", PgnGame.WHITE_WINS, "e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 b5a4 g8f6 e1g1 f8e7"},
+        {"Gamma", PgnGame.UNKNOWN, "d2d4 d7d5 c2c4"},
+        {"Epsilon", PgnGame.BLACK_WINS, "d4e3 e1c1 e8g8 b7a8q f8a8"},
+        {"Eta", PgnGame.UNKNOWN, "f2f3 e7e5 g2g4 d8h4"}
+    };
+    
+    // FEN strings that must be rejected: missing or extra Kings, unknown or repeated castling letters.
+    private static final String[] INVALID_FENS = {
+        "4k3/8/8/8/8/8/8/8 w - - 0 1",
+        "4k3/8/8/8/8/8/8/3KK3 w - - 0 1",
+        "8/8/8/8/8/8/8/4K3 b - - 0 1",
+        "4k3/8/8/8/8/8/8/4K3 w X - 0 1",
+        "4k3/8/8/8/8/8/8/4K3 w KK - 0 1",
+        "4k3/8/8/8/8/8/8/4K3 w K- - 0 1"
+    };
+    
+    // FEN strings with castling rights or en passant squares the pieces do not allow, and how they load.
+    private static final String[][] REPAIRED_FENS = {
+        {"4k3/8/8/8/8/8/8/4K3 w K - 0 1", "4k3/8/8/8/8/8/8/4K3 w - - 0 1"},
+        {"r3k3/8/8/8/8/8/8/R3K2R w KQkq - 0 1", "r3k3/8/8/8/8/8/8/R3K2R w KQq - 0 1"},
+        {"4k3/8/8/8/8/8/8/R4K1R w KQ - 0 1", "4k3/8/8/8/8/8/8/R4K1R w - - 0 1"},
+        {"1RK5/2P5/2k1N3/1q2q3/8/8/2q5/R6R w Q b8 0 1", "1RK5/2P5/2k1N3/1q2q3/8/8/2q5/R6R w - - 0 1"},
+        {"4k3/8/8/8/4P3/8/8/4K3 b - e2 0 1", "4k3/8/8/8/4P3/8/8/4K3 b - - 0 1"},
+        {"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3",
+            "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3"}
+    };
+    
+    // Positions with the keys given in the Polyglot book format description.
+    private static final String[][] POLYGLOT_KEYS = {
+        {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "463b96181691fc9c"},
+        {"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", "823c9b50fd114196"},
+        {"rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", "0756b94461c50fb0"},
+        {"rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", "662fafb965db29d4"},
+        {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "22a48b5a8e47ff78"},
+        {"rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", "652a607ca3f242c1"},
+        {"rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", "00fdd303c946bdd9"},
+        {"rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", "3c8123ea7b067637"},
+        {"rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", "5c3f9b829b279560"}
+    };
+    
+    /**
+     * Runs the checks.
+     * 
+     * @param args Not used.
+     * @throws IOException if the temporary files cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("checks");
+        boolean passed;
+        try {
+            Path pgnFile = directory.resolve("games.pgn");
+            Files.write(pgnFile, PGN.getBytes(StandardCharsets.UTF_8));
+            Path archiveFile = directory.resolve("games.ocg");
+            Path backFile = directory.resolve("back.pgn");
+            Path indexFile = directory.resolve("games.idx");
+            
+            passed = report("FEN validation", checkFenValidation());
+            passed &= report("PGN reader", checkPgnReader(pgnFile));
+            passed &= report("Archive round trip", checkArchiveRoundTrip(pgnFile, archiveFile, backFile));
+            passed &= report("Position index", checkPositionIndex(pgnFile, archiveFile, indexFile));
+            passed &= report("Polyglot keys", checkPolyglotKeys());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+        
+        System.out.println(passed ? "All checks passed." : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Prints the outcome of a check.
+     * 
+     * @param name The name of the check.
+     * @param failure A description of what went wrong, or null if the check passed.
+     * @return true if the check passed.
+     */
+    private static boolean report(String name, String failure) {
+        System.out.printf("%-22s %s%n", name, failure == null ? "OK" : "FAILED: " + failure);
+        return failure == null;
+    }
+    
+    /**
+     * Loads the FEN strings in INVALID_FENS, which must be rejected, and REPAIRED_FENS, which must load as expected
+     * and have moves generated to a few plies without error.  Castling must also not be generated for rights
+     * set by hand without a Rook in the corner.
+     * 
+     * @return A description of the first FEN handled wrongly, or null if there is none.
+     */
+    private static String checkFenValidation() {
+        BoardState state = new BoardState();
+        for (String fen : INVALID_FENS) {
+            try {
+                state.loadFen(fen);
+                return fen + " was accepted";
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        Perft perft = new Perft();
+        for (String[] fen : REPAIRED_FENS) {
+            state.loadFen(fen[0]);
+            if (!state.toFen().equals(fen[1])) {
+                return fen[0] + " loaded as " + state.toFen() + ", expected " + fen[1];
+            }
+            try {
+                perft.perft(state, 3);
+            } catch (RuntimeException e) {
+                return fen[0] + " failed move generation: " + e;
+            }
+        }
+        
+        state.loadFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        state.setCastlingRights(BoardState.ALL_CASTLING);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator().generateLegalMoves(state, moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.isCastle(moves[i])) {
+                return "castling generated without a Rook: " + Move.toString(moves[i]);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Reads the test games and compares them with GAMES.  The game with an illegal move must be reported
+     * and skipped without losing the games around it.
+     * 
+     * @param pgnFile The test games.
+     * @return A description of the first difference, or null if there is none.
+     * @throws IOException if the file cannot be read.
+     */
+    private static String checkPgnReader(Path pgnFile) throws IOException {
+        List<PgnGame> games = new ArrayList<>();
+        int errors = readGames(pgnFile, games);
+        if (errors != 1) {
+            return errors + " games with errors, expected 1";
+        }
+        if (games.size() != GAMES.length) {
+            return games.size() + " games read, expected " + GAMES.length;
+        }
+        for (int i = 0; i < GAMES.length; i++) {
+            PgnGame game = games.get(i);
+            if (!GAMES[i][0].equals(game.getTag("White"))) {
+                return "game " + i + " has White " + game.getTag("White") + ", expected " + GAMES[i][0];
+            }
+            if (!GAMES[i][1].equals(game.getResult())) {
+                return "game " + i + " has result " + game.getResult() + ", expected " + GAMES[i][1];
+            }
+            if (!GAMES[i][2].equals(moveText(game))) {
+                return "game " + i + " has moves " + moveText(game) + ", expected " + GAMES[i][2];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Converts the test games to an archive and back to PGN.  The archive must give back each game's players,
+     * result, starting position and moves, and the PGN written from it must read back as the same games.
+     * 
+     * @param pgnFile The test games.
+     * @param archiveFile Where to write the archive.
+     * @param backFile Where to write the PGN converted back from the archive.
+     * @return A description of the first difference, or null if there is none.
+     * @throws IOException if a file cannot be used.
+     */
+    private static String checkArchiveRoundTrip(Path pgnFile, Path archiveFile, Path backFile) throws IOException {
+        List<PgnGame> games = new ArrayList<>();
+        readGames(pgnFile, games);
+        int written = GameArchiveWriter.fromPgn(pgnFile, archiveFile);
+        if (written != games.size()) {
+            return written + " games archived, expected " + games.size();
+        }
+        try (GameArchiveReader archive = new GameArchiveReader(archiveFile)) {
+            for (int i = 0; i < games.size(); i++) {
+                String difference = compareGames(games.get(i), archive.getGame(i));
+                if (difference != null) {
+                    return "archived game " + i + " " + difference;
+                }
+            }
+        }
+        
+        if (GameArchiveReader.toPgn(archiveFile, backFile) != games.size()) {
+            return "wrong number of games converted back to PGN";
+        }
+        List<PgnGame> backGames = new ArrayList<>();
+        int errors = readGames(backFile, backGames);
+        if (errors != 0 || backGames.size() != games.size()) {
+            return "PGN from the archive read back as " + backGames.size() + " games and " + errors + " errors";
+        }
+        for (int i = 0; i < games.size(); i++) {
+            String difference = compareGames(games.get(i), backGames.get(i));
+            if (difference != null) {
+                return "game " + i + " converted back to PGN " + difference;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Indexes the archive of the test games, then looks up every position of every game, which must be found
+     * at the first ply it occurred.  The start position must be found in the three games that begin there,
+     * with their results counted, and a position no game reached must not be found.
+     * 
+     * @param pgnFile The test games.
+     * @param archiveFile The archive of the test games.
+     * @param indexFile Where to write the index.
+     * @return A description of the first wrong lookup, or null if there is none.
+     * @throws IOException if a file cannot be used.
+     */
+    private static String checkPositionIndex(Path pgnFile, Path archiveFile, Path indexFile) throws IOException {
+        List<PgnGame> games = new ArrayList<>();
+        readGames(pgnFile, games);
+        try (GameArchiveReader archive = new GameArchiveReader(archiveFile)) {
+            PositionIndex.build(archive, indexFile, Integer.MAX_VALUE);
+        }
+        
+        try (PositionIndex index = new PositionIndex(indexFile)) {
+            BoardState state = new BoardState();
+            for (int game = 0; game < games.size(); game++) {
+                state.loadFen(games.get(game).getStartFen());
+                for (int ply = 0; ; ply++) {
+                    if (!state.isRepetition() && !contains(index.find(state.getHash()), game, ply)) {
+                        return "game " + game + " ply " + ply + " not found";
+                    }
+                    if (ply == games.get(game).getMoveCount()) {
+                        break;
+                    }
+                    state.makeMove(games.get(game).getMove(ply));
+                    state.switchSide();
+                }
+            }
+            
+            state.loadFen(BoardState.STARTING_FEN);
+            PositionIndex.Matches start = index.find(state.getHash());
+            if (!Arrays.equals(start.getGames(), new int[] {0, 1, 3})) {
+                return "start position found in games " + Arrays.toString(start.getGames()) + ", expected [0, 1, 3]";
+            }
+            if (start.getWhiteWins() != 1 || start.getDraws() != 0 || start.getBlackWins() != 0) {
+                return "start position results +" + start.getWhiteWins() + " =" + start.getDraws()
+                        + " -" + start.getBlackWins() + ", expected +1 =0 -0";
+            }
+            state.loadFen("rnbqkbnr/pppppppp/8/8/P7/8/1PPPPPPP/RNBQKBNR b KQkq - 0 1");
+            if (index.find(state.getHash()).getCount() != 0) {
+                return "found a position no game reached";
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Compares the Polyglot keys of the positions in POLYGLOT_KEYS with the published keys.
+     * 
+     * @return A description of the first wrong key, or null if they are all right.
+     */
+    private static String checkPolyglotKeys() {
+        BoardState state = new BoardState();
+        for (String[] position : POLYGLOT_KEYS) {
+            state.loadFen(position[0]);
+            long key = PolyglotKeys.key(state);
+            if (key != Long.parseUnsignedLong(position[1], 16)) {
+                return position[0] + " has key " + Long.toHexString(key) + ", expected " + position[1];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Reads every game of a PGN file, skipping games with errors.
+     * 
+     * @param pgnFile The PGN file.
+     * @param games Where to add the games read.
+     * @return The number of games skipped for errors.
+     * @throws IOException if the file cannot be read.
+     */
+    private static int readGames(Path pgnFile, List<PgnGame> games) throws IOException {
+        int errors = 0;
+        try (PgnReader reader = new PgnReader(pgnFile)) {
+            while (true) {
+                try {
+                    PgnGame game = reader.next();
+                    if (game == null) {
+                        break;
+                    }
+                    games.add(game);
+                } catch (IllegalArgumentException e) {
+                    errors++;
+                }
+            }
+        }
+        return errors;
+    }
+    
+    /**
+     * Compares the players, result, starting position and moves of two games, the parts an archive keeps.
+     * 
+     * @param expected The original game.
+     * @param actual The game after conversion.
+     * @return A description of the first difference, or null if there is none.
+     */
+    private static String compareGames(PgnGame expected, PgnGame actual) {
+        for (String tag : new String[] {"White", "Black"}) {
+            if (!expected.getTag(tag).equals(actual.getTag(tag))) {
+                return "has " + tag + " " + actual.getTag(tag) + ", expected " + expected.getTag(tag);
+            }
+        }
+        if (!expected.getResult().equals(actual.getResult())) {
+            return "has result " + actual.getResult() + ", expected " + expected.getResult();
+        }
+        if (!expected.getStartFen().equals(actual.getStartFen())) {
+            return "starts from " + actual.getStartFen() + ", expected " + expected.getStartFen();
+        }
+        if (!Arrays.equals(expected.getMoves(), actual.getMoves())) {
+            return "has moves " + moveText(actual) + ", expected " + moveText(expected);
+        }
+        return null;
+    }
+    
+    /**
+     * Checks if an index lookup found a game at a ply.
+     * 
+     * @param matches The lookup.
+     * @param game The index of the game.
+     * @param ply The ply.
+     * @return true if the game was found at that ply.
+     */
+    private static boolean contains(PositionIndex.Matches matches, int game, int ply) {
+        for (int i = 0; i < matches.getCount(); i++) {
+            if (matches.getGame(i) == game && matches.getPly(i) == ply) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Writes a game's moves in coordinate notation.
+     * 
+     * @param game The game.
+     * @return The moves separated by spaces.
+     */
+    private static String moveText(PgnGame game) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(Move.toString(game.getMove(i)));
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
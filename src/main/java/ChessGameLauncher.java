@@ -28,6 +28,10 @@ import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import main.controllers.java.BoardController;
+import main.controllers.java.ColorSelectionController;
+import main.controllers.java.OpponentSelectionController;
+import main.java.engine.ParallelSearch;
+import main.java.engine.TranspositionTable;
 
 /**
  * Main class for launching the Chess game application.  This is generated dynamically rather than through a .fxml file.
@@ -188,6 +192,14 @@ public class ChessGameLauncher extends Application {
         
         whiteTimer.activate();
         
+        // Against the computer, the engine plays the color the player did not pick
+        if (OpponentSelectionController.engineOpponent) {
+            Piece.Player engineColor = ColorSelectionController.playerColor == Piece.Player.WHITE
+                    ? Piece.Player.BLACK : Piece.Player.WHITE;
+            boardController.setEngineOpponent(
+                    new ParallelSearch(ParallelSearch.DEFAULT_THREADS, TranspositionTable.DEFAULT_SIZE_MB), engineColor);
+        }
+        
         primaryStage.setScene(scene);
         primaryStage.setTitle("Better Chess");
         primaryStage.show();
@@ -38,6 +38,24 @@ public class ChessTimer {
         return String.format("%02d:%02d", minutes, seconds);
     }
     
+    /**
+     * Gets the remaining time.
+     * 
+     * @return The remaining time in seconds.
+     */
+    public int getRemainingTime() {
+        return remainingTime;
+    }
+    
+    /**
+     * Gets the time increment added after each move.
+     * 
+     * @return The time increment in seconds.
+     */
+    public int getIncrement() {
+        return increment;
+    }
+    
     /**
      * Decrements the remaining time by one second if the timer is active and there is time remaining.
      */
@@ -0,0 +1,149 @@
+package main.java;
+
+/**
+ * Encodes a move as a single int, so move lists can be kept in plain int arrays.
+ * Bits 0-5 hold the starting square, bits 6-11 the ending square and bits 12-15 the move flags.
+ * Squares are numbered row * 8 + column, matching BoardState.
+ */
+public final class Move {
+    
+    // Move flags.  Captures have bit 2 set, promotions have bit 3 set.
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+    public static final int PROMOTION_CAPTURE = 12;
+    
+    // Value used when there is no move, e.g. an empty slot in a list.  A real move never starts and ends on the same square.
+    public static final int NONE = 0;
+    
+    /**
+     * Private constructor.  Only static methods are provided.
+     */
+    private Move() {
+    }
+    
+    /**
+     * Builds a move.
+     * 
+     * @param from The starting square.
+     * @param to The ending square.
+     * @param flags The move flags.
+     * @return The encoded move.
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+    
+    /**
+     * Builds a promotion move.
+     * 
+     * @param from The starting square.
+     * @param to The ending square.
+     * @param pieceType The piece type promoted to, from BoardState.KNIGHT to BoardState.QUEEN.
+     * @param capture true if the promotion also captures a piece.
+     * @return The encoded move.
+     */
+    public static int promotion(int from, int to, int pieceType, boolean capture) {
+        int flags = (capture ? PROMOTION_CAPTURE : PROMOTION) | (pieceType - BoardState.KNIGHT);
+        return of(from, to, flags);
+    }
+    
+    /**
+     * Gets the starting square of a move.
+     * 
+     * @param move The encoded move.
+     * @return The starting square.
+     */
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+    
+    /**
+     * Gets the ending square of a move.
+     * 
+     * @param move The encoded move.
+     * @return The ending square.
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+    
+    /**
+     * Gets the flags of a move.
+     * 
+     * @param move The encoded move.
+     * @return The move flags.
+     */
+    public static int flags(int move) {
+        return (move >>> 12) & 0xF;
+    }
+    
+    /**
+     * Checks if a move captures a piece, including en passant.
+     * 
+     * @param move The encoded move.
+     * @return true if the move is a capture.
+     */
+    public static boolean isCapture(int move) {
+        return (flags(move) & CAPTURE) != 0;
+    }
+    
+    /**
+     * Checks if a move promotes a Pawn.
+     * 
+     * @param move The encoded move.
+     * @return true if the move is a promotion.
+     */
+    public static boolean isPromotion(int move) {
+        return (flags(move) & PROMOTION) != 0;
+    }
+    
+    /**
+     * Checks if a move is a castling move.
+     * 
+     * @param move The encoded move.
+     * @return true if the move castles on either side.
+     */
+    public static boolean isCastle(int move) {
+        int flags = flags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+    
+    /**
+     * Gets the piece type a promotion move promotes to.
+     * 
+     * @param move The encoded move.
+     * @return The piece type, from BoardState.KNIGHT to BoardState.QUEEN.
+     */
+    public static int promotionType(int move) {
+        return BoardState.KNIGHT + (flags(move) & 3);
+    }
+    
+    /**
+     * Gets the algebraic name of a square, e.g. "e4".
+     * 
+     * @param square The square.
+     * @return The name of the square.
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + (square & 7)) + (char) ('8' - (square >>> 3));
+    }
+    
+    /**
+     * Gets the coordinate notation of a move, e.g. "e2e4" or "e7e8q".
+     * 
+     * @param move The encoded move.
+     * @return The move in coordinate notation.
+     */
+    public static String toString(int move) {
+        String text = squareName(from(move)) + squareName(to(move));
+        if (isPromotion(move)) {
+            text += "nbrq".charAt(promotionType(move) - BoardState.KNIGHT);
+        }
+        return text;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,433 @@
+package main.java;
+
+/**
+ * Generates every move for the side to move of a BoardState in a single pass.
+ * Moves are written as encoded ints (see Move) into a buffer supplied by the caller, so no objects are created per move.
+ * Legal moves are generated directly: the pieces pinned to the King and the squares that answer a check are worked
+ * out once per position, and each piece's targets are masked by them, so no move has to be tried on the board.
+ * Only leavesKingSafe makes and unmakes a move, so a position must not be shared between threads while it runs.
+ */
+public class MoveGenerator {
+    
+    // Upper bound on the number of moves in any legal chess position, used to size move buffers.
+    public static final int MAX_MOVES = 256;
+    
+    // Masks for whole rows of the board.
+    private static final long ROW_0 = 0xFFL;
+    private static final long ROW_2 = 0xFFL << 16;
+    private static final long ROW_5 = 0xFFL << 40;
+    private static final long ROW_7 = 0xFFL << 56;
+    
+    /**
+     * Generates every legal move for the side to move.
+     * 
+     * @param state The position.
+     * @param moves The buffer to write the moves into.  Must hold at least MAX_MOVES entries.
+     * @return The number of moves written.
+     */
+    public int generateLegalMoves(BoardState state, int[] moves) {
+        return generateLegal(state, moves, false);
+    }
+    
+    /**
+     * Generates the legal captures, en passant captures and promotions for the side to move, the moves
+     * a quiescence search looks at.  Quiet moves are never generated, rather than generated and dropped.
+     * 
+     * @param state The position.
+     * @param moves The buffer to write the moves into.  Must hold at least MAX_MOVES entries.
+     * @return The number of moves written.
+     */
+    public int generateLegalCaptures(BoardState state, int[] moves) {
+        return generateLegal(state, moves, true);
+    }
+    
+    /**
+     * Generates the legal moves for the side to move.
+     * 
+     * @param state The position.
+     * @param moves The move buffer.
+     * @param capturesOnly true to generate only captures and promotions.
+     * @return The number of moves written.
+     */
+    private int generateLegal(BoardState state, int[] moves, boolean capturesOnly) {
+        int color = state.getSideToMove();
+        int king = state.kingSquare(color);
+        if (king == BoardState.NO_SQUARE) {
+            // Without a King nothing is pinned or in check, so every pseudo-legal move is legal
+            int all = generatePseudoLegalMoves(state, moves);
+            if (!capturesOnly) {
+                return all;
+            }
+            int count = 0;
+            for (int i = 0; i < all; i++) {
+                if (Move.isCapture(moves[i]) || Move.isPromotion(moves[i])) {
+                    moves[count++] = moves[i];
+                }
+            }
+            return count;
+        }
+        int enemyColor = color ^ 1;
+        long own = state.getOccupancy(color);
+        long enemy = state.getOccupancy(enemyColor);
+        long occupied = state.getAllPieces();
+        long checkers = state.getCheckers(color);
+        long targets = capturesOnly ? enemy : ~own;
+        
+        // The King may go to any square not attacked.  In check, it is lifted off the board first,
+        // so it cannot step back along the line of a checking slider.
+        int count = 0;
+        long kingTargets = Attacks.kingAttacks(king) & targets;
+        while (kingTargets != 0) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            boolean safe = checkers == 0 ? !state.isSquareAttacked(to, enemyColor)
+                    : state.attackersTo(to, enemyColor, occupied ^ (1L << king)) == 0;
+            if (safe) {
+                moves[count++] = Move.of(king, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+            }
+        }
+        // In double check only the King can move
+        if (Long.bitCount(checkers) > 1) {
+            return count;
+        }
+        
+        // In check, every other move must capture the checking piece or block its line
+        long evasionMask = ~0L;
+        if (checkers != 0) {
+            evasionMask = checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+        }
+        long targetMask = targets & evasionMask;
+        long pinned = pinnedPieces(state, color, king, occupied);
+        
+        // Pawn moves are generated in bulk, then the few that break a pin or ignore a check are dropped
+        int pawnStart = count;
+        int pawnEnd = generatePawnMoves(state, color, enemy, occupied, capturesOnly, moves, count);
+        for (int i = pawnStart; i < pawnEnd; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            long to = 1L << Move.to(move);
+            boolean legal = Move.flags(move) == Move.EN_PASSANT ? isLegalEnPassant(state, color, king, move)
+                    : (evasionMask & to) != 0 && ((pinned & (1L << from)) == 0 || (Attacks.line(king, from) & to) != 0);
+            if (legal) {
+                moves[count++] = move;
+            }
+        }
+        
+        // A pinned Knight can never stay on the line of the pin, so it has no moves
+        long knights = state.getPieces(color, BoardState.KNIGHT) & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(from, Attacks.knightAttacks(from) & targetMask, enemy, moves, count);
+        }
+        long bishops = state.getPieces(color, BoardState.BISHOP);
+        while (bishops != 0) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            count = addMoves(from, Attacks.bishopAttacks(from, occupied) & targetMask & pinMask(pinned, king, from),
+                    enemy, moves, count);
+        }
+        long rooks = state.getPieces(color, BoardState.ROOK);
+        while (rooks != 0) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            count = addMoves(from, Attacks.rookAttacks(from, occupied) & targetMask & pinMask(pinned, king, from),
+                    enemy, moves, count);
+        }
+        long queens = state.getPieces(color, BoardState.QUEEN);
+        while (queens != 0) {
+            int from = Long.numberOfTrailingZeros(queens);
+            queens &= queens - 1;
+            count = addMoves(from, Attacks.queenAttacks(from, occupied) & targetMask & pinMask(pinned, king, from),
+                    enemy, moves, count);
+        }
+        if (checkers == 0 && !capturesOnly) {
+            count = generateCastling(state, color, occupied, moves, count);
+        }
+        return count;
+    }
+    
+    /**
+     * Finds the pieces of a side pinned to its King: those that are the only piece between the King and an enemy
+     * Rook, Bishop or Queen that would otherwise attack it.
+     * 
+     * @param state The position.
+     * @param color The side whose pieces may be pinned.
+     * @param king The square of that side's King.
+     * @param occupied Every occupied square.
+     * @return A bitboard of the pinned pieces.
+     */
+    private static long pinnedPieces(BoardState state, int color, int king, long occupied) {
+        int enemyColor = color ^ 1;
+        long enemy = state.getOccupancy(enemyColor);
+        long queens = state.getPieces(enemyColor, BoardState.QUEEN);
+        // Enemy sliders that would attack the King if only their own side's pieces could block them
+        long snipers = (Attacks.rookAttacks(king, enemy) & (state.getPieces(enemyColor, BoardState.ROOK) | queens))
+                | (Attacks.bishopAttacks(king, enemy) & (state.getPieces(enemyColor, BoardState.BISHOP) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & occupied;
+            // Exactly one piece in the way, and it is one of ours
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & state.getOccupancy(color)) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+    
+    /**
+     * Gets the squares a piece may move to without exposing its King: anywhere if it is not pinned,
+     * otherwise only along the line of the pin.
+     * 
+     * @param pinned The pinned pieces of the side to move.
+     * @param king The square of the side's King.
+     * @param from The square of the piece.
+     * @return A bitboard of the allowed squares.
+     */
+    private static long pinMask(long pinned, int king, int from) {
+        return (pinned & (1L << from)) == 0 ? -1L : Attacks.line(king, from);
+    }
+    
+    /**
+     * Checks if an en passant capture leaves the King safe.  The capture takes two Pawns off one row at once,
+     * which can open a line to the King that no pin test sees, so the attacks on the King are worked out
+     * on the occupancy after the capture instead.  This also settles captures made while in check.
+     * 
+     * @param state The position.
+     * @param color The side to move.
+     * @param king The square of that side's King.
+     * @param move The en passant capture.
+     * @return true if the capture is legal.
+     */
+    private static boolean isLegalEnPassant(BoardState state, int color, int king, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int captured = (from & ~7) | (to & 7); // The Pawn taken stands beside the capturing one
+        long after = (state.getAllPieces() ^ (1L << from) ^ (1L << captured)) | (1L << to);
+        return (state.attackersTo(king, color ^ 1, after) & ~(1L << captured)) == 0;
+    }
+    
+    /**
+     * Checks if a move generated for a position is legal, i.e. does not leave the mover's King in check.
+     * The move is made and unmade on the position, which is left as it was.
+     * 
+     * @param state The position.
+     * @param move A pseudo-legal move for the side to move.
+     * @return true if the move is legal.
+     */
+    public boolean leavesKingSafe(BoardState state, int move) {
+        int color = state.getSideToMove();
+        state.makeMove(move);
+        boolean safe = !state.isInCheck(color);
+        state.unmakeMove();
+        return safe;
+    }
+    
+    /**
+     * Generates every pseudo-legal move for the side to move.
+     * Pseudo-legal moves follow the movement rules of each piece but may leave the King in check.
+     * Castling is only generated when the King does not start in, pass through or land on an attacked square.
+     * 
+     * @param state The position.
+     * @param moves The buffer to write the moves into.  Must hold at least MAX_MOVES entries.
+     * @return The number of moves written.
+     */
+    public int generatePseudoLegalMoves(BoardState state, int[] moves) {
+        int color = state.getSideToMove();
+        long own = state.getOccupancy(color);
+        long enemy = state.getOccupancy(color ^ 1);
+        long occupied = state.getAllPieces();
+        int count = generatePawnMoves(state, color, enemy, occupied, false, moves, 0);
+        
+        long knights = state.getPieces(color, BoardState.KNIGHT);
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(from, Attacks.knightAttacks(from) & ~own, enemy, moves, count);
+        }
+        long bishops = state.getPieces(color, BoardState.BISHOP);
+        while (bishops != 0) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            count = addMoves(from, Attacks.bishopAttacks(from, occupied) & ~own, enemy, moves, count);
+        }
+        long rooks = state.getPieces(color, BoardState.ROOK);
+        while (rooks != 0) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            count = addMoves(from, Attacks.rookAttacks(from, occupied) & ~own, enemy, moves, count);
+        }
+        long queens = state.getPieces(color, BoardState.QUEEN);
+        while (queens != 0) {
+            int from = Long.numberOfTrailingZeros(queens);
+            queens &= queens - 1;
+            count = addMoves(from, Attacks.queenAttacks(from, occupied) & ~own, enemy, moves, count);
+        }
+        int king = state.kingSquare(color);
+        if (king != BoardState.NO_SQUARE) {
+            count = addMoves(king, Attacks.kingAttacks(king) & ~own, enemy, moves, count);
+            count = generateCastling(state, color, occupied, moves, count);
+        }
+        return count;
+    }
+    
+    /**
+     * Generates Pawn pushes, captures, en passant captures and promotions.
+     * 
+     * @param state The position.
+     * @param color The side to move.
+     * @param enemy The squares occupied by the other side.
+     * @param occupied Every occupied square.
+     * @param capturesOnly true to leave out the pushes that do not promote.
+     * @param moves The move buffer.
+     * @param count The number of moves already in the buffer.
+     * @return The new number of moves in the buffer.
+     */
+    private int generatePawnMoves(BoardState state, int color, long enemy, long occupied, boolean capturesOnly,
+            int[] moves, int count) {
+        long pawns = state.getPieces(color, BoardState.PAWN);
+        long empty = ~occupied;
+        long single, doubles, leftCaptures, rightCaptures, lastRow;
+        int forward;
+        
+        // Shifts the whole set of Pawns at once.  White moves towards row 0, Black towards row 7.
+        if (color == BoardState.WHITE) {
+            forward = -8;
+            single = (pawns >>> 8) & empty;
+            doubles = ((single & ROW_5) >>> 8) & empty;
+            leftCaptures = (pawns >>> 9) & ~Attacks.FILE_H & enemy;
+            rightCaptures = (pawns >>> 7) & ~Attacks.FILE_A & enemy;
+            lastRow = ROW_0;
+        } else {
+            forward = 8;
+            single = (pawns << 8) & empty;
+            doubles = ((single & ROW_2) << 8) & empty;
+            leftCaptures = (pawns << 7) & ~Attacks.FILE_H & enemy;
+            rightCaptures = (pawns << 9) & ~Attacks.FILE_A & enemy;
+            lastRow = ROW_7;
+        }
+        if (capturesOnly) {
+            single &= lastRow;
+            doubles = 0;
+        }
+        
+        while (single != 0) {
+            int to = Long.numberOfTrailingZeros(single);
+            single &= single - 1;
+            count = addPawnMove(to - forward, to, false, lastRow, moves, count);
+        }
+        while (doubles != 0) {
+            int to = Long.numberOfTrailingZeros(doubles);
+            doubles &= doubles - 1;
+            moves[count++] = Move.of(to - 2 * forward, to, Move.DOUBLE_PAWN_PUSH);
+        }
+        while (leftCaptures != 0) {
+            int to = Long.numberOfTrailingZeros(leftCaptures);
+            leftCaptures &= leftCaptures - 1;
+            count = addPawnMove(to - forward + 1, to, true, lastRow, moves, count);
+        }
+        while (rightCaptures != 0) {
+            int to = Long.numberOfTrailingZeros(rightCaptures);
+            rightCaptures &= rightCaptures - 1;
+            count = addPawnMove(to - forward - 1, to, true, lastRow, moves, count);
+        }
+        
+        int enPassant = state.getEnPassantSquare();
+        if (enPassant != BoardState.NO_SQUARE) {
+            // The Pawns that could capture onto the square are the ones an enemy Pawn there would attack
+            long attackers = Attacks.pawnAttacks(color ^ 1, enPassant) & pawns;
+            while (attackers != 0) {
+                int from = Long.numberOfTrailingZeros(attackers);
+                attackers &= attackers - 1;
+                moves[count++] = Move.of(from, enPassant, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Adds a single-step Pawn move, expanding it into the four promotions when it reaches the last row.
+     * 
+     * @param from The starting square.
+     * @param to The ending square.
+     * @param capture true if the move captures a piece.
+     * @param lastRow The row the Pawn promotes on.
+     * @param moves The move buffer.
+     * @param count The number of moves already in the buffer.
+     * @return The new number of moves in the buffer.
+     */
+    private static int addPawnMove(int from, int to, boolean capture, long lastRow, int[] moves, int count) {
+        if ((lastRow & (1L << to)) != 0) {
+            moves[count++] = Move.promotion(from, to, BoardState.QUEEN, capture);
+            moves[count++] = Move.promotion(from, to, BoardState.ROOK, capture);
+            moves[count++] = Move.promotion(from, to, BoardState.BISHOP, capture);
+            moves[count++] = Move.promotion(from, to, BoardState.KNIGHT, capture);
+        } else {
+            moves[count++] = Move.of(from, to, capture ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+    
+    /**
+     * Adds a move from a square to each target square.
+     * 
+     * @param from The starting square.
+     * @param targets A bitboard of the ending squares.
+     * @param enemy The squares occupied by the other side, used to flag captures.
+     * @param moves The move buffer.
+     * @param count The number of moves already in the buffer.
+     * @return The new number of moves in the buffer.
+     */
+    private static int addMoves(int from, long targets, long enemy, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = Move.of(from, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+    
+    /**
+     * Generates castling moves.  The Rook must be on its corner, the squares between King and Rook must be empty,
+     * and the King may not be in check or cross or land on an attacked square.
+     * 
+     * @param state The position.
+     * @param color The side to move.
+     * @param occupied Every occupied square.
+     * @param moves The move buffer.
+     * @param count The number of moves already in the buffer.
+     * @return The new number of moves in the buffer.
+     */
+    private static int generateCastling(BoardState state, int color, long occupied, int[] moves, int count) {
+        int rights = state.getCastlingRights();
+        int kingside = color == BoardState.WHITE ? BoardState.WHITE_KINGSIDE : BoardState.BLACK_KINGSIDE;
+        int queenside = color == BoardState.WHITE ? BoardState.WHITE_QUEENSIDE : BoardState.BLACK_QUEENSIDE;
+        if ((rights & (kingside | queenside)) == 0) {
+            return count;
+        }
+        
+        int king = color == BoardState.WHITE ? 60 : 4;
+        int rook = BoardState.pieceCode(color, BoardState.ROOK);
+        int enemy = color ^ 1;
+        if (state.pieceAt(king) != BoardState.pieceCode(color, BoardState.KING) || state.isSquareAttacked(king, enemy)) {
+            return count;
+        }
+        if ((rights & kingside) != 0
+                && state.pieceAt(king + 3) == rook
+                && (occupied & (3L << (king + 1))) == 0
+                && !state.isSquareAttacked(king + 1, enemy)
+                && !state.isSquareAttacked(king + 2, enemy)) {
+            moves[count++] = Move.of(king, king + 2, Move.KING_CASTLE);
+        }
+        if ((rights & queenside) != 0
+                && state.pieceAt(king - 4) == rook
+                && (occupied & (7L << (king - 3))) == 0
+                && !state.isSquareAttacked(king - 1, enemy)
+                && !state.isSquareAttacked(king - 2, enemy)) {
+            moves[count++] = Move.of(king, king - 2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package main.java;
+
+import java.io.PrintStream;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft").
+ * The counts for well-known positions are published, so comparing against them checks the move generator
+ * for rule errors, and timing the count measures its speed.
+ * Moves are made and unmade on a single position and the move buffers for every ply are allocated up front,
+ * so the count itself does not allocate.
+ */
+public class Perft {
+    
+    // Deepest count supported.  Well beyond anything that finishes in reasonable time.
+    public static final int MAX_DEPTH = 16;
+    
+    private final MoveGenerator generator = new MoveGenerator();
+    private final BoardState state = new BoardState();
+    private final int[][] moves = new int[MAX_DEPTH + 1][MoveGenerator.MAX_MOVES];
+    
+    /**
+     * Counts the positions reached after exactly depth moves.  The given position is not changed.
+     * 
+     * @param root The starting position.
+     * @param depth The number of moves to play.
+     * @return The number of leaf positions.
+     */
+    public long perft(BoardState root, int depth) {
+        if (depth < 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Perft depth must be between 0 and " + MAX_DEPTH);
+        }
+        state.copyFrom(root);
+        return count(0, depth);
+    }
+    
+    /**
+     * Counts the leaf positions below each legal move of the root and prints one line per move, then the total.
+     * Useful for finding which move a wrong count comes from.
+     * 
+     * @param root The starting position.
+     * @param depth The number of moves to play, at least 1.
+     * @param out The stream to print to.
+     * @return The total number of leaf positions.
+     */
+    public long divide(BoardState root, int depth, PrintStream out) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Divide depth must be between 1 and " + MAX_DEPTH);
+        }
+        state.copyFrom(root);
+        int[] rootMoves = moves[0];
+        int count = generator.generateLegalMoves(state, rootMoves);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            play(rootMoves[i]);
+            long nodes = count(1, depth - 1);
+            undo();
+            out.println(Move.toString(rootMoves[i]) + ": " + nodes);
+            total += nodes;
+        }
+        out.println("Total: " + total);
+        return total;
+    }
+    
+    /**
+     * Counts the leaf positions below the position at a ply.
+     * 
+     * @param ply The distance from the root, used to pick the move buffer.
+     * @param depth The remaining depth.
+     * @return The number of leaf positions.
+     */
+    private long count(int ply, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] plyMoves = moves[ply];
+        int count = generator.generateLegalMoves(state, plyMoves);
+        // Every legal move leads to exactly one leaf, so the last ply does not need to be played out
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            play(plyMoves[i]);
+            nodes += count(ply + 1, depth - 1);
+            undo();
+        }
+        return nodes;
+    }
+    
+    /**
+     * Plays a move and hands the turn to the other side.
+     * 
+     * @param move The encoded move.
+     */
+    private void play(int move) {
+        state.makeMove(move);
+        state.switchSide();
+    }
+    
+    /**
+     * Takes back the last move played and hands the turn back.
+     */
+    private void undo() {
+        state.unmakeMove();
+        state.switchSide();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,287 @@
+package main.java;
+
+import java.util.Random;
+
+/**
+ * Command-line regression suite for move generation.
+ * Runs perft on the standard reference positions, reporting node counts and nodes per second,
+ * then plays seeded random games and checks that every piece's isValidMove agrees with the move generator,
+ * that the captures-only generator gives exactly the legal captures and promotions, and that the
+ * incrementally kept Zobrist keys match keys computed from scratch after every change.
+ * Exits with status 1 if any count or rule check fails.
+ * 
+ * Usage: PerftRunner [-quick] [-divide "fen" depth]
+ */
+public class PerftRunner {
+    
+    // Name, FEN, depth, expected node count, and expected count one ply shallower for quick runs.
+    private static final String[][] POSITIONS = {
+        {"Start position", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "5", "4865609", "197281"},
+        {"Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "4", "4085603", "97862"},
+        {"Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "5", "674624", "43238"},
+        {"Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "4", "422333", "9467"},
+        {"Position 4 mirrored", "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1", "4", "422333", "9467"},
+        {"Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "4", "2103487", "62379"},
+        {"Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "4", "3894594", "89890"}
+    };
+    
+    // Number of random games played for the piece rule and key checks, and their maximum length.
+    private static final int RULE_GAMES = 50;
+    private static final int MAX_GAME_PLIES = 200;
+    
+    /**
+     * Runs the suite.
+     * 
+     * @param args "-quick" lowers every perft depth by one; "-divide fen depth" prints a per-move breakdown instead.
+     */
+    public static void main(String[] args) {
+        if (args.length == 3 && args[0].equals("-divide")) {
+            BoardState state = new BoardState();
+            state.loadFen(args[1]);
+            new Perft().divide(state, Integer.parseInt(args[2]), System.out);
+            return;
+        }
+        boolean quick = args.length > 0 && args[0].equals("-quick");
+        
+        boolean passed = runPerftSuite(quick ? 1 : 0);
+        passed &= runRuleCheck();
+        
+        System.out.println(passed ? "All checks passed." : "FAILED");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Runs perft on each reference position and compares against the published counts.
+     * 
+     * @param depthReduction How much to lower each position's depth by, 0 or 1.
+     * @return true if every count matches.
+     */
+    private static boolean runPerftSuite(int depthReduction) {
+        boolean passed = true;
+        Perft perft = new Perft();
+        BoardState state = new BoardState();
+        long totalNodes = 0;
+        long totalTime = 0;
+        
+        for (String[] position : POSITIONS) {
+            state.loadFen(position[1]);
+            int depth = Integer.parseInt(position[2]) - depthReduction;
+            long expected = Long.parseLong(position[depthReduction == 0 ? 3 : 4]);
+            
+            long start = System.nanoTime();
+            long nodes = perft.perft(state, depth);
+            long elapsed = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalTime += elapsed;
+            
+            boolean ok = nodes == expected;
+            passed &= ok;
+            System.out.printf("%-22s depth %d  nodes %,12d  %,8d ms  %,12d nodes/s  %s%n",
+                    position[0], depth, nodes, elapsed / 1_000_000, nodesPerSecond(nodes, elapsed),
+                    ok ? "OK" : "FAILED (expected " + expected + ")");
+        }
+        System.out.printf("%-22s          nodes %,12d  %,8d ms  %,12d nodes/s%n",
+                "Total", totalNodes, totalTime / 1_000_000, nodesPerSecond(totalNodes, totalTime));
+        return passed;
+    }
+    
+    /**
+     * Plays seeded random games and, at every position, checks that each piece's isValidMove accepts exactly
+     * the legal moves the generator produces for it.  Castling and en passant are left out, as the piece
+     * classes do not model them; moves that would leave the King in check are filtered from both sides.
+     * The captures-only generator must give the legal captures and promotions, and the move played is also
+     * made and taken back both ways round, checking the Zobrist keys at every step.
+     * 
+     * @return true if the piece rules and the generators agree, and the keys are right, everywhere.
+     */
+    private static boolean runRuleCheck() {
+        Random random = new Random(20241017L);
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] captures = new int[MoveGenerator.MAX_MOVES];
+        long positions = 0;
+        
+        for (int game = 0; game < RULE_GAMES; game++) {
+            Board board = new Board();
+            StringBuilder history = new StringBuilder();
+            for (int ply = 0; ply < MAX_GAME_PLIES; ply++) {
+                int count = board.generateLegalMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                String mismatch = findRuleMismatch(board, generator, moves, count);
+                positions++;
+                if (mismatch != null) {
+                    System.out.println("Piece rule check FAILED after moves: " + history);
+                    System.out.println("  " + mismatch);
+                    return false;
+                }
+                mismatch = findCaptureMismatch(board.getState(), generator, moves, count, captures);
+                if (mismatch != null) {
+                    System.out.println("Capture generation check FAILED after moves: " + history);
+                    System.out.println("  " + mismatch);
+                    return false;
+                }
+                int move = moves[random.nextInt(count)];
+                mismatch = findKeyMismatch(board.getState(), move);
+                if (mismatch != null) {
+                    System.out.println("Zobrist key check FAILED after moves: " + history);
+                    System.out.println("  " + Move.toString(move) + ": " + mismatch);
+                    return false;
+                }
+                history.append(Move.toString(move)).append(' ');
+                board.makeMove(move);
+                board.switchPlayer();
+            }
+        }
+        System.out.printf("Piece rule/key check   %d games, %,d positions  OK%n", RULE_GAMES, positions);
+        return true;
+    }
+    
+    /**
+     * Compares the piece rules with the generated legal moves for every piece of the current player.
+     * 
+     * @param board The board.
+     * @param generator A move generator used for the King safety test.
+     * @param moves The legal moves of the current player.
+     * @param count The number of legal moves.
+     * @return A description of the first disagreement, or null if there is none.
+     */
+    private static String findRuleMismatch(Board board, MoveGenerator generator, int[] moves, int count) {
+        BoardState state = board.getState();
+        long own = state.getOccupancy(state.getSideToMove());
+        while (own != 0) {
+            int from = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            Tile startTile = board.getTile(from >>> 3, from & 7);
+            Piece piece = startTile.getPiece();
+            
+            for (int to = 0; to < 64; to++) {
+                boolean generated = false;
+                for (int i = 0; i < count; i++) {
+                    int move = moves[i];
+                    if (Move.from(move) == from && Move.to(move) == to
+                            && !Move.isCastle(move) && Move.flags(move) != Move.EN_PASSANT) {
+                        generated = true;
+                        break;
+                    }
+                }
+                boolean accepted = piece.isValidMove(board, startTile, board.getTile(to >>> 3, to & 7))
+                        && generator.leavesKingSafe(state, Move.of(from, to, Move.QUIET));
+                if (generated != accepted) {
+                    return piece.getClass().getSimpleName() + " " + Move.squareName(from) + "-" + Move.squareName(to)
+                            + (accepted ? " accepted by isValidMove but not generated" : " generated but rejected by isValidMove");
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Compares the captures-only generator with the captures and promotions among the legal moves.
+     * 
+     * @param state The position.
+     * @param generator The move generator.
+     * @param moves The legal moves of the side to move.
+     * @param count The number of legal moves.
+     * @param captures A buffer for the generated captures.
+     * @return A description of the first disagreement, or null if there is none.
+     */
+    private static String findCaptureMismatch(BoardState state, MoveGenerator generator, int[] moves, int count,
+            int[] captures) {
+        int captureCount = generator.generateLegalCaptures(state, captures);
+        int expected = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                continue;
+            }
+            expected++;
+            boolean generated = false;
+            for (int j = 0; j < captureCount && !generated; j++) {
+                generated = captures[j] == move;
+            }
+            if (!generated) {
+                return Move.toString(move) + " not generated by generateLegalCaptures";
+            }
+        }
+        return captureCount == expected ? null
+                : captureCount + " moves from generateLegalCaptures, expected " + expected;
+    }
+    
+    /**
+     * Makes and takes back a move twice, switching sides after unmaking the first time, as the search does,
+     * and before unmaking the second time, as SAN does.  After each step the position's
+     * keys must match keys computed from scratch, and taking the move back must give the starting keys again.
+     * 
+     * @param state The position, left as it was.
+     * @param move A legal move for the side to move.
+     * @return A description of the first wrong key, or null if they are all right.
+     */
+    private static String findKeyMismatch(BoardState state, int move) {
+        long hash = state.getHash();
+        long pawnHash = state.getPawnHash();
+        String mismatch = checkKeys(state, "before the move");
+        if (mismatch != null) {
+            return mismatch;
+        }
+        for (int order = 0; order < 2; order++) {
+            state.makeMove(move);
+            if ((mismatch = checkKeys(state, "after makeMove")) != null) {
+                return mismatch;
+            }
+            state.switchSide();
+            if ((mismatch = checkKeys(state, "after switchSide")) != null) {
+                return mismatch;
+            }
+            if (order == 0) {
+                state.unmakeMove();
+                if ((mismatch = checkKeys(state, "after unmakeMove")) != null) {
+                    return mismatch;
+                }
+                state.switchSide();
+            } else {
+                state.switchSide();
+                if ((mismatch = checkKeys(state, "after switching back")) != null) {
+                    return mismatch;
+                }
+                state.unmakeMove();
+            }
+            if (state.getHash() != hash || state.getPawnHash() != pawnHash) {
+                return "keys not restored after taking the move back"
+                        + (order == 0 ? " before switching sides" : " after switching sides");
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Compares a position's incrementally kept keys with keys computed from scratch.
+     * 
+     * @param state The position.
+     * @param step The step just done, for the report.
+     * @return A description of the wrong key, or null if both are right.
+     */
+    private static String checkKeys(BoardState state, String step) {
+        if (state.getHash() != state.computeHash()) {
+            return "Zobrist key wrong " + step;
+        }
+        if (state.getPawnHash() != state.computePawnHash()) {
+            return "Pawn key wrong " + step;
+        }
+        return null;
+    }
+    
+    /**
+     * Works out a rate in nodes per second.
+     * 
+     * @param nodes The number of nodes.
+     * @param nanos The time taken in nanoseconds.
+     * @return The nodes per second.
+     */
+    private static long nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
\ No newline at end of file
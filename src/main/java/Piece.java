@@ -1,13 +1,16 @@
 package main.java;
 
+import java.util.ArrayList;
 import java.util.List;
 import javafx.scene.image.Image;
 
 /**
  * Abstract class representing a chess piece.  Provides the framework for all specific types
  * of chess pieces.
- * Includes common properties, i.e. color, position, and provides abstract methods to be 
+ * Includes common properties, i.e. color, and provides abstract methods to be 
  * overridden in subclasses.
+ * Pieces are immutable flyweights: there is one instance per type and color, got with e.g. Rook.of(color),
+ * shared by every board.  Where a piece stands is known only from the tile holding it.
  */
 public abstract class Piece {
     /**
@@ -19,17 +22,14 @@ public abstract class Piece {
         BLACK
     }
     private final Player color;
-    private Position position;
     
     /**
      * Constructor.
      * 
      * @param color The color of the piece. (Must be WHITE or BLACK.)
-     * @param position The initial position of the piece on the board.
      */
-    public Piece(Player color, Position position) {
+    protected Piece(Player color) {
         this.color = color;
-        this.position = position;
     }
     
     /**
@@ -42,30 +42,29 @@ public abstract class Piece {
     }
     
     /**
-     * Gets the position of the piece.
+     * Gets the BoardState piece type of the piece, e.g. BoardState.ROOK.
      * 
-     * @return The current position of the piece.
+     * @return The piece type.
      */
-    public Position getPosition() {
-        return position;
-    }
+    public abstract int getType();
     
     /**
-     * Sets the position of the piece.
+     * Gets the BoardState piece code of the piece, combining its type and color.
      * 
-     * @param position The updated position of the piece.
+     * @return The piece code.
      */
-    public void setPosition(Position position) {
-        this.position = position;
+    public int getCode() {
+        return BoardState.pieceCode(color.ordinal(), getType());
     }
     
     /**
      * Abstract method to generate all potential moves for the piece.
      * Subclasses take game state into account.
      * 
+     * @param position The square the piece stands on.
      * @return A list of potential moves.
      */
-    public abstract List<Position> getPotentialMoves();
+    public abstract List<Position> getPotentialMoves(Position position);
     
     /**
      * Abstract method to determine if a move is valid based on the current game state.
@@ -77,6 +76,20 @@ public abstract class Piece {
      */
     public abstract boolean isValidMove(Board board, Tile startTile, Tile endTile);
     
+    /**
+     * Lists the squares of a bitboard as positions, e.g. to turn an attack set from Attacks into potential moves.
+     * 
+     * @param squares The bitboard.
+     * @return The positions, in square order.
+     */
+    protected static List<Position> toPositions(long squares) {
+        List<Position> positions = new ArrayList<>(Long.bitCount(squares));
+        for (; squares != 0; squares &= squares - 1) {
+            positions.add(Position.of(Long.numberOfTrailingZeros(squares)));
+        }
+        return positions;
+    }
+    
     /**
      * Method to determine if the end tile is occupied by a piece of the same color.
      * Using this disallows the option for piece capture.
@@ -2,38 +2,70 @@ package main.java;
 
 /**
  * Represents a position on the board with a row and column.
+ * Positions are immutable, and there are only 64 of them: one per square, got with Position.of,
+ * so passing them around creates no garbage and they can be compared and hashed as map keys.
+ * Each position also has a square index, row * 8 + column, the form BoardState and encoded moves use.
  */
-public class Position {
-    private int row;
-    private int column;
+public final class Position {
+    
+    private static final Position[] SQUARES = new Position[64];
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new Position(square >>> 3, square & 7);
+        }
+    }
+    
+    private final int row;
+    private final int column;
     
     /**
-     * Constructor.
+     * Constructor.  Only the 64 positions in SQUARES are made; use of to get one.
      * 
      * @param row The row of the desired position location.
      * @param column The column of the desired position location.
      */
-    public Position(int row, int column) {
+    private Position(int row, int column) {
         this.row = row;
         this.column = column;
     }
     
     /**
-     * Gets the row of the position.
+     * Gets the position at a row and column.
      * 
-     * @return The row number.
+     * @param row The row, 0 to 7.
+     * @param column The column, 0 to 7.
+     * @return The position.
+     * @throws IllegalArgumentException if the row or column is off the board.
      */
-    public int getRow() {
-        return row;
+    public static Position of(int row, int column) {
+        if (row < 0 || row >= 8 || column < 0 || column >= 8) {
+            throw new IllegalArgumentException("Not on the board: row " + row + ", column " + column);
+        }
+        return SQUARES[row * 8 + column];
     }
     
     /**
-     * Sets the row of position.
+     * Gets the position of a square index.
      * 
-     * @param row The row number to set.
+     * @param square The square index, row * 8 + column, from 0 to 63.
+     * @return The position.
+     * @throws IllegalArgumentException if the index is not between 0 and 63.
      */
-    public void setRow(int row) {
-        this.row = row;
+    public static Position of(int square) {
+        if (square < 0 || square >= 64) {
+            throw new IllegalArgumentException("Not a square: " + square);
+        }
+        return SQUARES[square];
+    }
+    
+    /**
+     * Gets the row of the position.
+     * 
+     * @return The row number.
+     */
+    public int getRow() {
+        return row;
     }
     
     /**
@@ -46,12 +78,33 @@ public class Position {
     }
     
     /**
-     * Sets the column of the position.
+     * Gets the square index of the position.
      * 
-     * @param column The column number to set.
+     * @return The square index, row * 8 + column.
      */
-    public void setColumn(int column) {
-        this.column = column;
+    public int getSquare() {
+        return row * 8 + column;
+    }
+    
+    /**
+     * Checks if another object is the same position.
+     * 
+     * @param other The object to compare.
+     * @return true if it is a position with the same row and column.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Position && ((Position) other).getSquare() == getSquare();
+    }
+    
+    /**
+     * Standard hash code method.
+     * 
+     * @return The square index.
+     */
+    @Override
+    public int hashCode() {
+        return getSquare();
     }
     
     /**
@@ -0,0 +1,96 @@
+package main.java;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ * A position's key is the XOR of one key per piece on its square, plus keys for the side to move,
+ * the castling rights and the en passant file, so a move can update the key with a few XORs instead of rehashing.
+ * The keys come from a fixed seed, so the same position always has the same key, even between runs.
+ */
+public final class Zobrist {
+    
+    // Key XORed in when Black is to move.
+    public static final long SIDE;
+    
+    private static final long[] PIECE_SQUARE = new long[12 * 64]; // One key per piece code and square.
+    private static final long[] CASTLING = new long[16]; // One key per combination of castling rights.
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            seed = next(seed);
+            PIECE_SQUARE[i] = mix(seed);
+        }
+        // No castling rights hash to 0, so an empty position has the key 0
+        for (int i = 1; i < CASTLING.length; i++) {
+            seed = next(seed);
+            CASTLING[i] = mix(seed);
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            seed = next(seed);
+            EN_PASSANT_FILE[i] = mix(seed);
+        }
+        seed = next(seed);
+        SIDE = mix(seed);
+    }
+    
+    /**
+     * Private constructor.  Only static methods are provided.
+     */
+    private Zobrist() {
+    }
+    
+    /**
+     * Gets the key of a piece standing on a square.
+     * 
+     * @param piece The piece code.
+     * @param square The square.
+     * @return The key.
+     */
+    public static long pieceKey(int piece, int square) {
+        return PIECE_SQUARE[piece * 64 + square];
+    }
+    
+    /**
+     * Gets the key of a combination of castling rights.
+     * 
+     * @param castlingRights A combination of the BoardState castling right flags.
+     * @return The key, 0 when there are no rights.
+     */
+    public static long castlingKey(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+    
+    /**
+     * Gets the key of an en passant square.  Only the file is hashed, as the row follows from the side to move.
+     * 
+     * @param square The en passant square, or BoardState.NO_SQUARE.
+     * @return The key, 0 when there is no en passant square.
+     */
+    public static long enPassantKey(int square) {
+        return square == BoardState.NO_SQUARE ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+    
+    /**
+     * Advances the seed of the key generator (the SplitMix64 sequence).
+     * 
+     * @param seed The current seed.
+     * @return The next seed.
+     */
+    private static long next(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+    
+    /**
+     * Scrambles a seed into a well-distributed 64-bit key.
+     * 
+     * @param seed The seed.
+     * @return The key.
+     */
+    private static long mix(long seed) {
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,351 @@
+package main.java.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import main.java.Board;
+import main.java.BoardState;
+import main.java.pgn.PgnGame;
+import main.java.pgn.PgnWriter;
+
+/**
+ * Reads a game archive written by GameArchiveWriter.  The file is memory-mapped and any game can be found
+ * straight away through the index, so its moves are read with no parsing or move generation at all.
+ * A reader may be shared by several threads once it is open, as long as each replays onto its own Board.
+ */
+public class GameArchiveReader implements Closeable {
+    
+    // The file is mapped in windows of this size, each also covering the largest game that can start in it,
+    // so every game lies wholly in the window its first byte falls in.
+    private static final int WINDOW_SHIFT = 30;
+    private static final long WINDOW_BYTES = 1L << WINDOW_SHIFT;
+    private static final int MAX_GAME_BYTES = GameArchiveWriter.GAME_HEADER_BYTES + 2 * GameArchiveWriter.MAX_MOVES;
+    
+    private static final String[] RESULTS = {PgnGame.UNKNOWN, PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW};
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final String[] strings;
+    private final long indexOffset;
+    private final int gameCount;
+    
+    /**
+     * Constructor.  Opens an archive and reads its string table.
+     * 
+     * @param file The archive file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a game archive.
+     */
+    public GameArchiveReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < GameArchiveWriter.FILE_HEADER_BYTES + GameArchiveWriter.TRAILER_BYTES) {
+                throw new IllegalArgumentException("Not a game archive: " + file);
+            }
+            windows = new MappedByteBuffer[(int) ((size - 1) >> WINDOW_SHIFT) + 1];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * WINDOW_BYTES;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(WINDOW_BYTES + MAX_GAME_BYTES, size - start));
+            }
+            long trailer = size - GameArchiveWriter.TRAILER_BYTES;
+            if (getInt(0) != GameArchiveWriter.MAGIC || getInt(trailer + 20) != GameArchiveWriter.MAGIC) {
+                throw new IllegalArgumentException("Not a game archive: " + file);
+            }
+            if (getShort(4) != GameArchiveWriter.VERSION) {
+                throw new IllegalArgumentException("Unsupported game archive version " + getShort(4) + ": " + file);
+            }
+            long stringsOffset = getLong(trailer);
+            indexOffset = getLong(trailer + 8);
+            gameCount = getInt(trailer + 16);
+            
+            strings = new String[getInt(stringsOffset)];
+            long position = stringsOffset + 4;
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[getInt(position)];
+                position += 4;
+                for (int j = 0; j < bytes.length; j++) {
+                    bytes[j] = getByte(position++);
+                }
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Converts a game archive back to PGN.
+     * 
+     * @param archiveFile The archive file.
+     * @param pgnFile The PGN file, which the games are added to the end of.
+     * @return The number of games written.
+     * @throws IOException if either file cannot be used.
+     */
+    public static int toPgn(Path archiveFile, Path pgnFile) throws IOException {
+        try (GameArchiveReader reader = new GameArchiveReader(archiveFile); PgnWriter writer = new PgnWriter(pgnFile)) {
+            for (int i = 0; i < reader.getGameCount(); i++) {
+                writer.write(reader.getGame(i));
+            }
+            return reader.getGameCount();
+        }
+    }
+    
+    /**
+     * Gets the number of games in the archive.
+     * 
+     * @return The number of games.
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+    
+    /**
+     * Gets the name of a game's White player.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The name, or null if it is not known.
+     */
+    public String getWhite(int game) {
+        return getString(getInt(gameOffset(game)));
+    }
+    
+    /**
+     * Gets the name of a game's Black player.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The name, or null if it is not known.
+     */
+    public String getBlack(int game) {
+        return getString(getInt(gameOffset(game) + 4));
+    }
+    
+    /**
+     * Gets the date a game was played.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The date as yyyymmdd, with 0 for any unknown part.
+     */
+    public int getDate(int game) {
+        return getInt(gameOffset(game) + 8);
+    }
+    
+    /**
+     * Gets the position a game starts from.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The starting position as a FEN string.
+     */
+    public String getStartFen(int game) {
+        String fen = getString(getInt(gameOffset(game) + 12));
+        return fen != null ? fen : BoardState.STARTING_FEN;
+    }
+    
+    /**
+     * Gets the number of moves in a game, counting each player's move separately.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The number of moves.
+     */
+    public int getMoveCount(int game) {
+        return getShort(gameOffset(game) + 16) & 0xFFFF;
+    }
+    
+    /**
+     * Gets the result of a game.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return PgnGame.WHITE_WINS, BLACK_WINS, DRAW or UNKNOWN.
+     */
+    public String getResult(int game) {
+        return RESULTS[getByte(gameOffset(game) + 18) & 3];
+    }
+    
+    /**
+     * Reads a game's moves into an array.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @param moves The array to fill, which must hold at least getMoveCount(game) moves.
+     * @return The number of moves.
+     */
+    public int getMoves(int game, int[] moves) {
+        long offset = gameOffset(game);
+        MappedByteBuffer window = windows[(int) (offset >> WINDOW_SHIFT)];
+        int position = (int) (offset & (WINDOW_BYTES - 1));
+        int count = window.getShort(position + 16) & 0xFFFF;
+        position += GameArchiveWriter.GAME_HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            moves[i] = window.getShort(position + 2 * i) & 0xFFFF;
+        }
+        return count;
+    }
+    
+    /**
+     * Sets up a game's starting position on a board and plays its moves.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @param board The board, which is left at the end of the game.
+     * @return The number of moves played.
+     */
+    public int replay(int game, Board board) {
+        return replay(game, board, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Sets up a game's starting position on a board and plays some of its moves.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @param board The board.
+     * @param maxMoves The number of moves to play, if the game has that many.
+     * @return The number of moves played.
+     */
+    public int replay(int game, Board board, int maxMoves) {
+        long offset = gameOffset(game);
+        MappedByteBuffer window = windows[(int) (offset >> WINDOW_SHIFT)];
+        int position = (int) (offset & (WINDOW_BYTES - 1));
+        int count = Math.min(window.getShort(position + 16) & 0xFFFF, maxMoves);
+        board.setPosition(getStartFen(game));
+        position += GameArchiveWriter.GAME_HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(window.getShort(position + 2 * i) & 0xFFFF);
+            board.switchPlayer();
+        }
+        return count;
+    }
+    
+    /**
+     * Reads a whole game.  Its tags are the players, date, result and starting position, which is all that
+     * the archive keeps.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The game.
+     */
+    public PgnGame getGame(int game) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        putTag(tags, "White", getWhite(game));
+        putTag(tags, "Black", getBlack(game));
+        int date = getDate(game);
+        if (date != 0) {
+            tags.put("Date", datePart(date / 10000, 4) + "." + datePart(date / 100 % 100, 2) + "."
+                    + datePart(date % 100, 2));
+        }
+        String fen = getStartFen(game);
+        if (!fen.equals(BoardState.STARTING_FEN)) {
+            tags.put("SetUp", "1");
+            tags.put("FEN", fen);
+        }
+        int[] moves = new int[getMoveCount(game)];
+        getMoves(game, moves);
+        return new PgnGame(tags, moves, getResult(game));
+    }
+    
+    /**
+     * Closes the file.  The reader must not be used afterwards.
+     * 
+     * @throws IOException if it cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    /**
+     * Gets the position of a game in the file.
+     * 
+     * @param game The index of the game, 0 for the first.
+     * @return The position of its header.
+     * @throws IndexOutOfBoundsException if there is no such game.
+     */
+    private long gameOffset(int game) {
+        if (game < 0 || game >= gameCount) {
+            throw new IndexOutOfBoundsException("Game " + game + " of " + gameCount);
+        }
+        return getLong(indexOffset + 8L * game);
+    }
+    
+    /**
+     * Gets a string from the string table.
+     * 
+     * @param index The index of the string, or -1.
+     * @return The string, or null for -1.
+     */
+    private String getString(int index) {
+        return index < 0 ? null : strings[index];
+    }
+    
+    /**
+     * Writes one part of a PGN date.
+     * 
+     * @param value The number, or 0 if it is unknown.
+     * @param digits The number of digits.
+     * @return The part, padded with zeros, or question marks if it is unknown.
+     */
+    private static String datePart(int value, int digits) {
+        if (value == 0) {
+            return "?".repeat(digits);
+        }
+        String text = Integer.toString(value);
+        return "0".repeat(Math.max(0, digits - text.length())) + text;
+    }
+    
+    /**
+     * Adds a tag if its value is known.
+     * 
+     * @param tags The tags.
+     * @param name The tag name.
+     * @param value The value, or null.
+     */
+    private static void putTag(Map<String, String> tags, String name, String value) {
+        if (value != null) {
+            tags.put(name, value);
+        }
+    }
+    
+    /**
+     * Reads a byte from the file.
+     * 
+     * @param position The position in the file.
+     * @return The value.
+     */
+    private byte getByte(long position) {
+        return windows[(int) (position >> WINDOW_SHIFT)].get((int) (position & (WINDOW_BYTES - 1)));
+    }
+    
+    /**
+     * Reads a big-endian short from the file.
+     * 
+     * @param position The position in the file.
+     * @return The value.
+     */
+    private short getShort(long position) {
+        return windows[(int) (position >> WINDOW_SHIFT)].getShort((int) (position & (WINDOW_BYTES - 1)));
+    }
+    
+    /**
+     * Reads a big-endian int from the file.
+     * 
+     * @param position The position in the file.
+     * @return The value.
+     */
+    private int getInt(long position) {
+        return windows[(int) (position >> WINDOW_SHIFT)].getInt((int) (position & (WINDOW_BYTES - 1)));
+    }
+    
+    /**
+     * Reads a big-endian long from the file.
+     * 
+     * @param position The position in the file.
+     * @return The value.
+     */
+    private long getLong(long position) {
+        return windows[(int) (position >> WINDOW_SHIFT)].getLong((int) (position & (WINDOW_BYTES - 1)));
+    }
+}
\ No newline at end of file
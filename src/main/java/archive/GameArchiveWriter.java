@@ -0,0 +1,242 @@
+package main.java.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import main.java.BoardState;
+import main.java.pgn.PgnGame;
+import main.java.pgn.PgnReader;
+
+/**
+ * Writes games in the compact binary game archive format, read back by GameArchiveReader.
+ * <p>
+ * The file starts with a header of MAGIC and VERSION.  Each game follows as a fixed GAME_HEADER_BYTES header
+ * (White and Black as string table indexes, the date as yyyymmdd, the starting FEN as a string table index
+ * or -1 for the usual start, the move count and the result) and then its moves, two bytes each: the encoded
+ * Move, which holds the starting square, ending square and flags, including the promotion piece.
+ * After the games come the string table (each string once, as its UTF-8 length and bytes) and the index
+ * (the file position of every game), and the file ends with a trailer giving their positions and the game count.
+ * All values are big-endian.
+ */
+public class GameArchiveWriter implements Closeable {
+    
+    public static final int MAGIC = 0x4F43474D; // "OCGM"
+    public static final short VERSION = 1;
+    public static final int FILE_HEADER_BYTES = 8;
+    public static final int GAME_HEADER_BYTES = 20;
+    public static final int TRAILER_BYTES = 24;
+    public static final int MAX_MOVES = 0xFFFF;
+    
+    // Result codes stored in the game header.
+    static final int UNKNOWN = 0;
+    static final int WHITE_WINS = 1;
+    static final int BLACK_WINS = 2;
+    static final int DRAW = 3;
+    
+    private final DataOutputStream out;
+    private long position;
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private long[] gameOffsets = new long[1024];
+    private int gameCount;
+    
+    /**
+     * Constructor.  Creates the archive, replacing any file already there.
+     * 
+     * @param file The archive file.
+     * @throws IOException if the file cannot be created.
+     */
+    public GameArchiveWriter(Path file) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        position = FILE_HEADER_BYTES;
+    }
+    
+    /**
+     * Converts a PGN file to a game archive.  Games with illegal moves are left out.
+     * 
+     * @param pgnFile The PGN file.
+     * @param archiveFile The archive file to create.
+     * @return The number of games written.
+     * @throws IOException if either file cannot be used.
+     */
+    public static int fromPgn(Path pgnFile, Path archiveFile) throws IOException {
+        try (PgnReader reader = new PgnReader(pgnFile); GameArchiveWriter writer = new GameArchiveWriter(archiveFile)) {
+            while (true) {
+                try {
+                    PgnGame game = reader.next();
+                    if (game == null) {
+                        break;
+                    }
+                    writer.write(game);
+                } catch (IllegalArgumentException e) {
+                    // Skips the unreadable game
+                }
+            }
+            return writer.getGameCount();
+        }
+    }
+    
+    /**
+     * Adds a game to the archive.  Only the players, date, starting position, moves and result are kept.
+     * 
+     * @param game The game.
+     * @throws IOException if the game cannot be written.
+     * @throws IllegalArgumentException if the game has more than MAX_MOVES moves.
+     */
+    public void write(PgnGame game) throws IOException {
+        int[] moves = game.getMoves();
+        write(game.getTag("White"), game.getTag("Black"), game.getTag("Date"),
+                game.getTag("FEN"), moves, moves.length, game.getResult());
+    }
+    
+    /**
+     * Adds a game to the archive.
+     * 
+     * @param white The name of the White player, or null.
+     * @param black The name of the Black player, or null.
+     * @param date The date in PGN form, e.g. "2024.03.??", or null.
+     * @param startFen The starting position, or null for the usual start.
+     * @param moves The encoded moves.
+     * @param moveCount The number of moves.
+     * @param result The result in PGN notation, e.g. PgnGame.WHITE_WINS.
+     * @throws IOException if the game cannot be written.
+     * @throws IllegalArgumentException if the game has more than MAX_MOVES moves.
+     */
+    public void write(String white, String black, String date, String startFen, int[] moves, int moveCount,
+            String result) throws IOException {
+        if (moveCount > MAX_MOVES) {
+            throw new IllegalArgumentException("Games of more than " + MAX_MOVES + " moves cannot be stored");
+        }
+        if (gameCount == gameOffsets.length) {
+            gameOffsets = Arrays.copyOf(gameOffsets, gameCount * 2);
+        }
+        gameOffsets[gameCount++] = position;
+        
+        out.writeInt(stringIndex(white));
+        out.writeInt(stringIndex(black));
+        out.writeInt(parseDate(date));
+        out.writeInt(startFen == null || startFen.equals(BoardState.STARTING_FEN) ? -1 : stringIndex(startFen));
+        out.writeShort(moveCount);
+        out.writeByte(resultCode(result));
+        out.writeByte(0);
+        for (int i = 0; i < moveCount; i++) {
+            out.writeShort(moves[i]);
+        }
+        position += GAME_HEADER_BYTES + 2L * moveCount;
+    }
+    
+    /**
+     * Gets the number of games written so far.
+     * 
+     * @return The number of games.
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+    
+    /**
+     * Writes the string table, index and trailer, then closes the file.
+     * 
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        long stringsOffset = position;
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            position += 4 + bytes.length;
+        }
+        long indexOffset = position + 4;
+        for (int i = 0; i < gameCount; i++) {
+            out.writeLong(gameOffsets[i]);
+        }
+        out.writeLong(stringsOffset);
+        out.writeLong(indexOffset);
+        out.writeInt(gameCount);
+        out.writeInt(MAGIC);
+        out.close();
+    }
+    
+    /**
+     * Gets the string table index of a string, adding it to the table the first time.
+     * 
+     * @param string The string, or null.
+     * @return The index, or -1 for null.
+     */
+    private int stringIndex(String string) {
+        if (string == null) {
+            return -1;
+        }
+        return stringIndexes.computeIfAbsent(string, key -> {
+            strings.add(key);
+            return strings.size() - 1;
+        });
+    }
+    
+    /**
+     * Converts a PGN date such as "2024.03.17" to a number such as 20240317.  Unknown parts, written "??", become 0.
+     * 
+     * @param date The PGN date, or null.
+     * @return The date as yyyymmdd, or 0 if it is unknown.
+     */
+    static int parseDate(String date) {
+        if (date == null || date.length() != 10) {
+            return 0;
+        }
+        return datePart(date, 0, 4) * 10000 + datePart(date, 5, 7) * 100 + datePart(date, 8, 10);
+    }
+    
+    /**
+     * Reads one part of a PGN date.
+     * 
+     * @param date The PGN date.
+     * @param start The index of the part's first digit.
+     * @param end The index after the part's last digit.
+     * @return The number, or 0 if it is unknown.
+     */
+    private static int datePart(String date, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = date.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+    
+    /**
+     * Gets the result code stored for a PGN result.
+     * 
+     * @param result The result in PGN notation.
+     * @return The result code.
+     */
+    static int resultCode(String result) {
+        switch (result) {
+            case PgnGame.WHITE_WINS:
+                return WHITE_WINS;
+            case PgnGame.BLACK_WINS:
+                return BLACK_WINS;
+            case PgnGame.DRAW:
+                return DRAW;
+            default:
+                return UNKNOWN;
+        }
+    }
+}
\ No newline at end of file
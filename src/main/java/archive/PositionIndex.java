@@ -0,0 +1,566 @@
+package main.java.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import main.java.Board;
+import main.java.BoardState;
+
+/**
+ * An on-disk index from positions to the archived games that reached them.  Every position of every game in a
+ * GameArchiveReader is recorded as an ENTRY_BYTES entry: the position's Zobrist key, the game, the ply it was
+ * reached at and the game's result.  The entries are sorted by key, so the games reaching a position are found
+ * by a binary search of the memory-mapped file, and their results are counted without opening the archive.
+ * <p>
+ * The index is built in sorted runs of at most RUN_ENTRIES entries, which are written to temporary files beside
+ * the index and then merged, so archives much larger than memory can be indexed.
+ * Run it on its own to build an index: PositionIndex games.ocg games.idx [maxPlies]
+ */
+public class PositionIndex implements Closeable {
+    
+    public static final int MAGIC = 0x4F435049; // "OCPI"
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int ENTRY_BYTES = 16;
+    
+    // Entries sorted in memory at a time while building.  Each takes 16 bytes.
+    private static final int RUN_ENTRIES = 1 << 22;
+    
+    // The index is mapped in windows of this size.  Entries never straddle a window.
+    private static final int WINDOW_SHIFT = 30;
+    private static final long WINDOW_BYTES = 1L << WINDOW_SHIFT;
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final long entryCount;
+    private final int gameCount;
+    
+    /**
+     * Constructor.  Opens an index built by build.
+     * 
+     * @param file The index file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a position index.
+     */
+    public PositionIndex(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            windows = new MappedByteBuffer[(int) (Math.max(0, size - 1) >> WINDOW_SHIFT) + 1];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * WINDOW_BYTES;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, size - start));
+            }
+            if (size < HEADER_BYTES || windows[0].getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a position index: " + file);
+            }
+            if (windows[0].getShort(4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported position index version " + windows[0].getShort(4)
+                        + ": " + file);
+            }
+            gameCount = windows[0].getInt(8);
+            entryCount = (size - HEADER_BYTES) / ENTRY_BYTES;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Builds an index of the positions in a game archive and prints how long it took.
+     * 
+     * @param args The archive file, the index file, and optionally the number of moves of each game to index.
+     * @throws IOException if either file cannot be used.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: PositionIndex games.ocg games.idx [maxPlies]");
+            return;
+        }
+        int maxPlies = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+        long start = System.nanoTime();
+        long entries;
+        try (GameArchiveReader archive = new GameArchiveReader(Paths.get(args[0]))) {
+            entries = build(archive, Paths.get(args[1]), maxPlies);
+        }
+        System.out.printf("%,d positions indexed in %,d ms%n", entries, (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * Builds an index of every position in a game archive, replacing any file already there.
+     * A position repeated within a game is recorded only the first time.
+     * 
+     * @param archive The game archive.
+     * @param file The index file.
+     * @param maxPlies The number of moves of each game to index, e.g. to index only openings.
+     * @return The number of entries written.
+     * @throws IOException if a file cannot be written.
+     */
+    public static long build(GameArchiveReader archive, Path file, int maxPlies) throws IOException {
+        long[] keys = new long[RUN_ENTRIES];
+        long[] values = new long[RUN_ENTRIES];
+        int count = 0;
+        List<Path> runs = new ArrayList<>();
+        BoardState state = new BoardState();
+        int[] moves = new int[GameArchiveWriter.MAX_MOVES];
+        try {
+            for (int game = 0; game < archive.getGameCount(); game++) {
+                int moveCount = Math.min(archive.getMoves(game, moves), maxPlies);
+                int result = GameArchiveWriter.resultCode(archive.getResult(game));
+                state.loadFen(archive.getStartFen(game));
+                for (int ply = 0; ; ply++) {
+                    if (!state.isRepetition()) {
+                        if (count == RUN_ENTRIES) {
+                            runs.add(writeRun(file, runs.size(), keys, values, count));
+                            count = 0;
+                        }
+                        keys[count] = state.getHash();
+                        values[count++] = (long) game << 32 | ply << 2 | result;
+                    }
+                    if (ply == moveCount) {
+                        break;
+                    }
+                    state.makeMove(moves[ply]);
+                    state.switchSide();
+                }
+            }
+            if (runs.isEmpty()) {
+                sort(keys, values, 0, count - 1);
+                try (DataOutputStream out = openOutput(file)) {
+                    writeHeader(out, archive.getGameCount());
+                    for (int i = 0; i < count; i++) {
+                        out.writeLong(keys[i]);
+                        out.writeLong(values[i]);
+                    }
+                }
+                return count;
+            }
+            runs.add(writeRun(file, runs.size(), keys, values, count));
+            return merge(runs, file, archive.getGameCount());
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+    
+    /**
+     * Finds the archived games that reached the position on a board.
+     * 
+     * @param board The board.
+     * @return The games and their results.
+     */
+    public Matches find(Board board) {
+        return find(board.getState().getHash());
+    }
+    
+    /**
+     * Finds the archived games that reached a position.
+     * 
+     * @param key The Zobrist key of the position.
+     * @return The games and their results.
+     */
+    public Matches find(long key) {
+        long low = 0;
+        long high = entryCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        long end = low;
+        while (end < entryCount && getKey(end) == key) {
+            end++;
+        }
+        Matches matches = new Matches((int) (end - low));
+        for (long i = low; i < end; i++) {
+            matches.add(getValue(i));
+        }
+        return matches;
+    }
+    
+    /**
+     * Gets the number of positions in the index.
+     * 
+     * @return The number of entries.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+    
+    /**
+     * Gets the number of games in the archive the index was built from.
+     * 
+     * @return The number of games.
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+    
+    /**
+     * Closes the file.  The index must not be used afterwards.
+     * 
+     * @throws IOException if it cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    /**
+     * Gets the key of an entry.
+     * 
+     * @param entry The index of the entry.
+     * @return The Zobrist key.
+     */
+    private long getKey(long entry) {
+        long position = HEADER_BYTES + entry * ENTRY_BYTES;
+        return windows[(int) (position >> WINDOW_SHIFT)].getLong((int) (position & (WINDOW_BYTES - 1)));
+    }
+    
+    /**
+     * Gets the game, ply and result of an entry.
+     * 
+     * @param entry The index of the entry.
+     * @return The game in the high 32 bits, then the ply, then the result code in the low 2 bits.
+     */
+    private long getValue(long entry) {
+        long position = HEADER_BYTES + entry * ENTRY_BYTES + 8;
+        return windows[(int) (position >> WINDOW_SHIFT)].getLong((int) (position & (WINDOW_BYTES - 1)));
+    }
+    
+    /**
+     * Sorts entries by key, then by game and ply.
+     * 
+     * @param keys The keys.
+     * @param values The values, moved along with their keys.
+     * @param low The first entry to sort.
+     * @param high The last entry to sort.
+     */
+    private static void sort(long[] keys, long[] values, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long pivotKey = keys[middle];
+            long pivotValue = values[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0) {
+                    i++;
+                }
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    long key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    long value = values[i];
+                    values[i] = values[j];
+                    values[j] = value;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurses into the smaller half and loops on the larger, so the stack stays shallow
+            if (j - low < high - i) {
+                sort(keys, values, low, j);
+                low = i;
+            } else {
+                sort(keys, values, i, high);
+                high = j;
+            }
+        }
+    }
+    
+    /**
+     * Compares two entries by key, then by game and ply.
+     * 
+     * @param key1 The first entry's key.
+     * @param value1 The first entry's value.
+     * @param key2 The second entry's key.
+     * @param value2 The second entry's value.
+     * @return A negative number, zero or a positive number as the first entry sorts before, with or after the second.
+     */
+    private static int compare(long key1, long value1, long key2, long value2) {
+        int result = Long.compare(key1, key2);
+        return result != 0 ? result : Long.compare(value1, value2);
+    }
+    
+    /**
+     * Sorts entries and writes them to a temporary run file beside the index.
+     * 
+     * @param file The index file.
+     * @param run The number of the run.
+     * @param keys The keys.
+     * @param values The values.
+     * @param count The number of entries.
+     * @return The run file.
+     * @throws IOException if it cannot be written.
+     */
+    private static Path writeRun(Path file, int run, long[] keys, long[] values, int count) throws IOException {
+        sort(keys, values, 0, count - 1);
+        Path runFile = file.resolveSibling(file.getFileName() + ".run" + run);
+        try (DataOutputStream out = openOutput(runFile)) {
+            for (int i = 0; i < count; i++) {
+                out.writeLong(keys[i]);
+                out.writeLong(values[i]);
+            }
+        }
+        return runFile;
+    }
+    
+    /**
+     * Merges sorted run files into the index.
+     * 
+     * @param runs The run files.
+     * @param file The index file.
+     * @param gameCount The number of games in the archive.
+     * @return The number of entries written.
+     * @throws IOException if a file cannot be used.
+     */
+    private static long merge(List<Path> runs, Path file, int gameCount) throws IOException {
+        PriorityQueue<Run> queue = new PriorityQueue<>();
+        long count = 0;
+        try (DataOutputStream out = openOutput(file)) {
+            for (Path path : runs) {
+                Run run = new Run(path);
+                if (run.next()) {
+                    queue.add(run);
+                } else {
+                    run.close();
+                }
+            }
+            writeHeader(out, gameCount);
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                out.writeLong(run.key);
+                out.writeLong(run.value);
+                count++;
+                if (run.next()) {
+                    queue.add(run);
+                } else {
+                    run.close();
+                }
+            }
+        } finally {
+            for (Run run : queue) {
+                run.close();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Opens a file for writing, replacing any file already there.
+     * 
+     * @param file The file.
+     * @return The buffered stream.
+     * @throws IOException if it cannot be opened.
+     */
+    private static DataOutputStream openOutput(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+    
+    /**
+     * Writes the index header: MAGIC, VERSION and the number of games in the archive.
+     * 
+     * @param out The index file.
+     * @param gameCount The number of games.
+     * @throws IOException if it cannot be written.
+     */
+    private static void writeHeader(DataOutputStream out, int gameCount) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeInt(gameCount);
+        out.writeInt(0);
+    }
+    
+    /**
+     * A sorted run file being merged, positioned at its next entry.
+     */
+    private static class Run implements Comparable<Run>, Closeable {
+        
+        private final DataInputStream in;
+        private long key;
+        private long value;
+        
+        /**
+         * Constructor.
+         * 
+         * @param file The run file.
+         * @throws IOException if it cannot be opened.
+         */
+        Run(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        }
+        
+        /**
+         * Reads the next entry.
+         * 
+         * @return false if there are no more entries.
+         * @throws IOException if the file cannot be read.
+         */
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            value = in.readLong();
+            return true;
+        }
+        
+        /**
+         * Compares the next entries of two runs.
+         * 
+         * @param other The other run.
+         * @return A negative number, zero or a positive number as this run's entry sorts before, with or after the other's.
+         */
+        @Override
+        public int compareTo(Run other) {
+            return compare(key, value, other.key, other.value);
+        }
+        
+        /**
+         * Closes the run file.
+         * 
+         * @throws IOException if it cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+    
+    /**
+     * The archived games that reached a position, in the order they appear in the archive,
+     * with how many of them each side won.
+     */
+    public static class Matches {
+        
+        private final int[] games;
+        private final int[] plies;
+        private int count;
+        private int whiteWins;
+        private int blackWins;
+        private int draws;
+        
+        /**
+         * Constructor.
+         * 
+         * @param capacity The number of games.
+         */
+        Matches(int capacity) {
+            games = new int[capacity];
+            plies = new int[capacity];
+        }
+        
+        /**
+         * Adds a game.
+         * 
+         * @param value An entry's value: the game, ply and result code.
+         */
+        void add(long value) {
+            games[count] = (int) (value >>> 32);
+            plies[count++] = (int) value >>> 2;
+            switch ((int) value & 3) {
+                case GameArchiveWriter.WHITE_WINS:
+                    whiteWins++;
+                    break;
+                case GameArchiveWriter.BLACK_WINS:
+                    blackWins++;
+                    break;
+                case GameArchiveWriter.DRAW:
+                    draws++;
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        /**
+         * Gets the number of games that reached the position.
+         * 
+         * @return The number of games.
+         */
+        public int getCount() {
+            return count;
+        }
+        
+        /**
+         * Gets one of the games.
+         * 
+         * @param index The index of the match, 0 for the first.
+         * @return The index of the game in the archive.
+         */
+        public int getGame(int index) {
+            return games[index];
+        }
+        
+        /**
+         * Gets the ply at which one of the games reached the position, so it can be replayed to that point
+         * with GameArchiveReader.replay(game, board, ply).
+         * 
+         * @param index The index of the match, 0 for the first.
+         * @return The number of moves played before the position was reached.
+         */
+        public int getPly(int index) {
+            return plies[index];
+        }
+        
+        /**
+         * Gets the games.
+         * 
+         * @return A copy of the archive indexes of the games.
+         */
+        public int[] getGames() {
+            return Arrays.copyOf(games, count);
+        }
+        
+        /**
+         * Gets the number of the games White won.
+         * 
+         * @return The number of games.
+         */
+        public int getWhiteWins() {
+            return whiteWins;
+        }
+        
+        /**
+         * Gets the number of the games that were drawn.
+         * 
+         * @return The number of games.
+         */
+        public int getDraws() {
+            return draws;
+        }
+        
+        /**
+         * Gets the number of the games Black won.
+         * 
+         * @return The number of games.
+         */
+        public int getBlackWins() {
+            return blackWins;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+package main.java.book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import main.java.Board;
+import main.java.BoardState;
+import main.java.Move;
+import main.java.MoveGenerator;
+
+/**
+ * An opening book in the Polyglot .bin format.  The file is a list of ENTRY_BYTES entries sorted by position key
+ * (see PolyglotKeys), each giving one move for the position and its weight: how often it should be chosen.
+ * The file is memory-mapped and the moves for a position are found by a binary search, so probing costs a few
+ * page reads rather than any search time.  Each book should be used by one thread.
+ */
+public class PolyglotBook implements Closeable {
+    
+    public static final int ENTRY_BYTES = 16;
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int entryCount;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] bookMoves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] bookWeights = new int[MoveGenerator.MAX_MOVES];
+    
+    /**
+     * Constructor.  Opens a book.
+     * 
+     * @param file The .bin file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a whole number of entries or is larger than 2 GB.
+     */
+    public PolyglotBook(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Not a Polyglot book: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            entryCount = (int) (size / ENTRY_BYTES);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Chooses a book move for the position on a board, at random in proportion to the moves' weights.
+     * 
+     * @param board The board.
+     * @param random The source of randomness.
+     * @return The encoded move, or Move.NONE if the position is not in the book.
+     */
+    public int probe(Board board, Random random) {
+        return probe(board.getState(), random);
+    }
+    
+    /**
+     * Chooses a book move for a position, at random in proportion to the moves' weights.
+     * 
+     * @param state The position.  It is left as it was.
+     * @param random The source of randomness.
+     * @return The encoded move, or Move.NONE if the position is not in the book.
+     */
+    public int probe(BoardState state, Random random) {
+        int count = getMoves(state, bookMoves, bookWeights);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += bookWeights[i];
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        int choice = random.nextInt(total);
+        for (int i = 0; i < count; i++) {
+            choice -= bookWeights[i];
+            if (choice < 0) {
+                return bookMoves[i];
+            }
+        }
+        return Move.NONE;
+    }
+    
+    /**
+     * Finds every book move for a position.  Moves that are not legal in the position, which can only come from
+     * a key collision or a damaged book, are left out.
+     * 
+     * @param state The position.  It is left as it was.
+     * @param moves The array to fill with the encoded moves.  Must hold at least MoveGenerator.MAX_MOVES entries.
+     * @param weights The array to fill with the moves' weights.  Must be as large as moves.
+     * @return The number of moves.
+     */
+    public int getMoves(BoardState state, int[] moves, int[] weights) {
+        long key = PolyglotKeys.key(state);
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(buffer.getLong(middle * ENTRY_BYTES), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == entryCount || buffer.getLong(low * ENTRY_BYTES) != key) {
+            return 0;
+        }
+        int legalCount = generator.generateLegalMoves(state, legalMoves);
+        int count = 0;
+        for (int entry = low; entry < entryCount && buffer.getLong(entry * ENTRY_BYTES) == key; entry++) {
+            int bookMove = buffer.getShort(entry * ENTRY_BYTES + 8) & 0xFFFF;
+            for (int i = 0; i < legalCount; i++) {
+                if (toPolyglotMove(legalMoves[i]) == bookMove) {
+                    if (count < moves.length) {
+                        moves[count] = legalMoves[i];
+                        weights[count++] = buffer.getShort(entry * ENTRY_BYTES + 10) & 0xFFFF;
+                    }
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Gets the number of entries in the book.
+     * 
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+    
+    /**
+     * Closes the file.  The book must not be used afterwards.
+     * 
+     * @throws IOException if it cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    /**
+     * Converts an encoded move to the Polyglot move encoding: the ending file and rank, then the starting
+     * file and rank, three bits each with rank 0 for rank 1, then the promotion piece (1 for a Knight up to
+     * 4 for a Queen).  Castling is written as the King capturing its own Rook, e.g. e1h1.
+     * 
+     * @param move The encoded move.
+     * @return The Polyglot move.
+     */
+    static int toPolyglotMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.flags(move) == Move.KING_CASTLE) {
+            to += 1;
+        } else if (Move.flags(move) == Move.QUEEN_CASTLE) {
+            to -= 2;
+        }
+        int promotion = Move.isPromotion(move) ? Move.promotionType(move) - BoardState.KNIGHT + 1 : 0;
+        return (to & 7) | (7 - (to >>> 3)) << 3 | (from & 7) << 6 | (7 - (from >>> 3)) << 9 | promotion << 12;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package main.java.book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import main.java.BoardState;
+import main.java.archive.GameArchiveReader;
+import main.java.archive.GameArchiveWriter;
+import main.java.pgn.PgnGame;
+
+/**
+ * Builds a Polyglot opening book from a game archive.  The first moves of every finished game are counted,
+ * and each move's weight is its score for the player who made it: 2 for every game they won and 1 for every draw,
+ * so the book prefers moves that did well.  Moves played in fewer than minGames games are left out.
+ * Run it on its own to build a book: PolyglotBookBuilder games.ocg book.bin [maxPlies [minGames]]
+ */
+public class PolyglotBookBuilder {
+    
+    public static final int DEFAULT_MAX_PLIES = 24;
+    public static final int DEFAULT_MIN_GAMES = 3;
+    
+    // The position keys of the moves seen, each to the moves' Polyglot encodings and {games, score}.
+    private final Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+    private final int maxPlies;
+    private final int minGames;
+    
+    /**
+     * Constructor.
+     * 
+     * @param maxPlies The number of moves of each game to add to the book.
+     * @param minGames The number of games a move must have been played in to be kept.
+     * @throws IllegalArgumentException if either is less than 1.
+     */
+    public PolyglotBookBuilder(int maxPlies, int minGames) {
+        if (maxPlies < 1 || minGames < 1) {
+            throw new IllegalArgumentException("Plies and games must be at least 1");
+        }
+        this.maxPlies = maxPlies;
+        this.minGames = minGames;
+    }
+    
+    /**
+     * Builds a book from a game archive and prints its size.
+     * 
+     * @param args The archive file, the book file, and optionally the plies per game and minimum games per move.
+     * @throws IOException if either file cannot be used.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: PolyglotBookBuilder games.ocg book.bin [maxPlies [minGames]]");
+            return;
+        }
+        PolyglotBookBuilder builder = new PolyglotBookBuilder(
+                args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLIES,
+                args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MIN_GAMES);
+        try (GameArchiveReader archive = new GameArchiveReader(Paths.get(args[0]))) {
+            builder.addArchive(archive);
+        }
+        int entries = builder.write(Paths.get(args[1]));
+        System.out.printf("%,d positions, %,d entries written%n", builder.positions.size(), entries);
+    }
+    
+    /**
+     * Adds the first moves of every finished game in an archive.
+     * 
+     * @param archive The game archive.
+     */
+    public void addArchive(GameArchiveReader archive) {
+        BoardState state = new BoardState();
+        int[] moves = new int[GameArchiveWriter.MAX_MOVES];
+        for (int game = 0; game < archive.getGameCount(); game++) {
+            String result = archive.getResult(game);
+            if (result.equals(PgnGame.UNKNOWN)) {
+                continue;
+            }
+            int count = Math.min(archive.getMoves(game, moves), maxPlies);
+            state.loadFen(archive.getStartFen(game));
+            addGame(state, moves, count, result);
+        }
+    }
+    
+    /**
+     * Adds the moves of a game.
+     * 
+     * @param state The game's starting position.  It is left at the end of the moves.
+     * @param moves The encoded moves.
+     * @param count The number of moves to add.
+     * @param result The result in PGN notation.
+     */
+    public void addGame(BoardState state, int[] moves, int count, String result) {
+        for (int i = 0; i < count; i++) {
+            int score;
+            if (result.equals(PgnGame.DRAW)) {
+                score = 1;
+            } else {
+                String win = state.getSideToMove() == BoardState.WHITE ? PgnGame.WHITE_WINS : PgnGame.BLACK_WINS;
+                score = result.equals(win) ? 2 : 0;
+            }
+            int[] counts = positions.computeIfAbsent(PolyglotKeys.key(state), key -> new HashMap<>())
+                    .computeIfAbsent(PolyglotBook.toPolyglotMove(moves[i]), key -> new int[2]);
+            counts[0]++;
+            counts[1] += score;
+            state.makeMove(moves[i]);
+            state.switchSide();
+        }
+    }
+    
+    /**
+     * Writes the book, replacing any file already there.  Entries are sorted by key and, for each key,
+     * by weight from highest to lowest.  Weights are scaled down where needed to fit in 16 bits.
+     * 
+     * @param file The .bin file.
+     * @return The number of entries written.
+     * @throws IOException if the file cannot be written.
+     */
+    public int write(Path file) throws IOException {
+        // Polyglot sorts keys as unsigned numbers; flipping the sign bit makes a signed sort give that order
+        long[] keys = new long[positions.size()];
+        int index = 0;
+        for (long key : positions.keySet()) {
+            keys[index++] = key ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        int entries = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (long sortKey : keys) {
+                long key = sortKey ^ Long.MIN_VALUE;
+                // Each move as weight << 16 | move, so sorting orders them by weight
+                long[] moves = new long[positions.get(key).size()];
+                int count = 0;
+                int maxWeight = 0;
+                for (Map.Entry<Integer, int[]> move : positions.get(key).entrySet()) {
+                    int[] counts = move.getValue();
+                    if (counts[0] >= minGames && counts[1] > 0) {
+                        moves[count++] = (long) counts[1] << 16 | move.getKey();
+                        maxWeight = Math.max(maxWeight, counts[1]);
+                    }
+                }
+                Arrays.sort(moves, 0, count);
+                for (int i = count - 1; i >= 0; i--) {
+                    long weight = moves[i] >>> 16;
+                    if (maxWeight > 0xFFFF) {
+                        weight = Math.max(1, weight * 0xFFFF / maxWeight);
+                    }
+                    out.writeLong(key);
+                    out.writeShort((int) moves[i]);
+                    out.writeShort((int) weight);
+                    out.writeInt(0);
+                    entries++;
+                }
+            }
+        }
+        return entries;
+    }
+}
\ No newline at end of file
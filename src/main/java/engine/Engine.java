@@ -0,0 +1,479 @@
+package main.java.engine;
+
+import main.java.Board;
+import main.java.BoardState;
+import main.java.ChessTimer;
+import main.java.Move;
+import main.java.MoveGenerator;
+
+/**
+ * Computer opponent.  Finds a move with an iterative-deepening principal variation search (alpha-beta with
+ * null windows after the first move), a quiescence search over captures at the leaves, and move ordering
+ * by MVV-LVA, killer moves and history.  Results are kept in a transposition table, which several engines may share.
+ * The search runs on its own copy of the position, so the game's Board is never changed.
+ * It can be limited to a fixed depth, a time budget, or a budget worked out from the player's ChessTimer.
+ */
+public class Engine {
+    
+    // Deepest ply the search can reach, including quiescence and check extensions.
+    public static final int MAX_PLY = 64;
+    
+    // Score bounds.  A mate found n plies from the root scores MATE - n, so shorter mates score higher.
+    public static final int INFINITY = 32000;
+    public static final int MATE = 30000;
+    
+    // Nodes searched between checks of the clock.
+    private static final int TIME_CHECK_INTERVAL = 2048;
+    
+    private final BoardState state = new BoardState();
+    private final TranspositionTable table;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final Evaluator evaluator = new Evaluator();
+    private final MoveOrdering ordering = new MoveOrdering(MAX_PLY);
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    
+    // Principal variation found at each ply, as a triangular table: pv[ply] holds the line from that ply on.
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[] previousPv = new int[MAX_PLY]; // Best line of the last completed iteration.
+    private int previousPvLength;
+    private final int[] line = new int[MAX_PLY]; // Moves played from the root to the current node.
+    
+    private long nodes;
+    private long deadline; // System.nanoTime() after which the search stops.
+    private volatile boolean stopped;
+    private int completedDepth;
+    private int bestScore;
+    
+    /**
+     * Constructor.  Creates an engine with its own transposition table of the default size.
+     */
+    public Engine() {
+        this(new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB));
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param table The transposition table to use.  May be shared with other engines.
+     */
+    public Engine(TranspositionTable table) {
+        this.table = table;
+    }
+    
+    /**
+     * Gets the transposition table the engine uses.
+     * 
+     * @return The transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+    
+    /**
+     * Finds a move for the current player, searching to a fixed depth.
+     * 
+     * @param board The board.  It is not changed.
+     * @param depth The depth to search to, in plies.
+     * @return The best move found, or Move.NONE if the current player has no legal move.
+     */
+    public int findBestMove(Board board, int depth) {
+        return search(board.getState(), depth, 0);
+    }
+    
+    /**
+     * Finds a move for the current player within a share of the time left on their clock.
+     * 
+     * @param board The board.  It is not changed.
+     * @param timer The current player's timer.
+     * @return The best move found, or Move.NONE if the current player has no legal move.
+     */
+    public int findBestMove(Board board, ChessTimer timer) {
+        return search(board.getState(), MAX_PLY - 1, timeBudget(timer));
+    }
+    
+    /**
+     * Works out how long to think about a move, given the time on the clock.
+     * Plans for about 30 more moves, and spends most of the increment as it will be given back.
+     * 
+     * @param timer The player's timer.
+     * @return The time budget in milliseconds.
+     */
+    public static long timeBudget(ChessTimer timer) {
+        return timeBudget(timer.getRemainingTime() * 1000L, timer.getIncrement() * 1000L);
+    }
+    
+    /**
+     * Works out how long to think about a move, given the time on the clock.
+     * Plans for about 30 more moves, and spends most of the increment as it will be given back.
+     * 
+     * @param remainingMillis The time left on the clock in milliseconds.
+     * @param incrementMillis The time added after each move in milliseconds.
+     * @return The time budget in milliseconds.
+     */
+    public static long timeBudget(long remainingMillis, long incrementMillis) {
+        long budget = remainingMillis / 30 + incrementMillis * 3 / 4;
+        // Never plan to use more than half of what is left
+        return Math.max(1, Math.min(budget, remainingMillis / 2));
+    }
+    
+    /**
+     * Searches a position with iterative deepening: depth 1, then 2, and so on, until the maximum depth is
+     * completed or the time runs out.  Each iteration searches the previous best line first.
+     * 
+     * @param root The position to search.  It is copied, not changed.
+     * @param maxDepth The deepest iteration, in plies.
+     * @param timeBudgetMillis The time budget in milliseconds, or 0 for no limit.
+     * @return The best move found, or Move.NONE if the side to move has no legal move.
+     * @throws IllegalArgumentException if the depth is not between 1 and MAX_PLY - 1.
+     */
+    public int search(BoardState root, int maxDepth, long timeBudgetMillis) {
+        stopped = false;
+        table.newSearch();
+        return search(root, maxDepth, timeBudgetMillis, 1);
+    }
+    
+    /**
+     * Runs the iterative deepening loop.  Unlike the public search, this neither clears a pending stop
+     * nor starts a new transposition table generation, so helper threads of a parallel search can be
+     * stopped before they start and do not age the table the main thread is using.
+     * 
+     * @param root The position to search.  It is copied, not changed.
+     * @param maxDepth The deepest iteration, in plies.
+     * @param timeBudgetMillis The time budget in milliseconds, or 0 for no limit.
+     * @param startDepth The first iteration.  Helper threads start at different depths to spread the work.
+     * @return The best move found, or Move.NONE if the side to move has no legal move.
+     * @throws IllegalArgumentException if the depth is not between 1 and MAX_PLY - 1.
+     */
+    int search(BoardState root, int maxDepth, long timeBudgetMillis, int startDepth) {
+        if (maxDepth < 1 || maxDepth >= MAX_PLY) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + (MAX_PLY - 1));
+        }
+        long start = System.nanoTime();
+        long budget = timeBudgetMillis > 0 ? timeBudgetMillis * 1_000_000L : Long.MAX_VALUE;
+        deadline = timeBudgetMillis > 0 ? start + budget : Long.MAX_VALUE;
+        state.copyFrom(root);
+        ordering.newSearch();
+        nodes = 0;
+        completedDepth = 0;
+        bestScore = 0;
+        previousPvLength = 0;
+        
+        int bestMove = Move.NONE;
+        for (int depth = Math.min(startDepth, maxDepth); depth <= maxDepth; depth++) {
+            int score = pvs(depth, 0, -INFINITY, INFINITY);
+            // A cut-short iteration is only trusted for its first move, which was the previous best
+            if (stopped && completedDepth > 0) {
+                break;
+            }
+            bestMove = pvLength[0] > 0 ? pv[0][0] : Move.NONE;
+            previousPvLength = pvLength[0];
+            System.arraycopy(pv[0], 0, previousPv, 0, previousPvLength);
+            bestScore = score;
+            completedDepth = depth;
+            // Stops early when a mate is found, or when the next iteration would not finish in time
+            if (stopped || Math.abs(score) >= MATE - MAX_PLY
+                    || System.nanoTime() - start > budget / 2) {
+                break;
+            }
+        }
+        if (bestMove == Move.NONE && generator.generateLegalMoves(state, moves[0]) > 0) {
+            // Out of time before the first iteration finished, so any legal move will do
+            bestMove = moves[0][0];
+        }
+        return bestMove;
+    }
+    
+    /**
+     * Stops a search running on another thread.  The search returns the best move of its last completed iteration.
+     */
+    public void stop() {
+        stopped = true;
+    }
+    
+    /**
+     * Clears a stop request, so a helper search started afterwards runs.
+     */
+    void clearStop() {
+        stopped = false;
+    }
+    
+    /**
+     * Gets the number of positions visited by the last search, including quiescence.
+     * 
+     * @return The node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+    
+    /**
+     * Gets the depth of the last completed iteration of the last search.
+     * 
+     * @return The depth in plies.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+    
+    /**
+     * Gets the score of the best move of the last search.
+     * 
+     * @return The score in centipawns for the side that was to move, or a mate score.
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+    
+    /**
+     * Principal variation search of a node.  The first move is searched with the full window; the rest
+     * are searched with a null window to prove they are no better, and only re-searched if that fails.
+     * 
+     * @param depth The remaining depth.
+     * @param ply The distance from the root.
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The score of the node for the side to move.
+     */
+    private int pvs(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (ply > 0 && state.isRepetition()) {
+            return 0;
+        }
+        int side = state.getSideToMove();
+        boolean inCheck = state.isInCheck(side);
+        // Searches checks one ply deeper, so the search does not stop just before an escape or a mate
+        if (inCheck && ply + depth < MAX_PLY - 1) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiesce(ply, alpha, beta);
+        }
+        if (countNode()) {
+            return 0;
+        }
+        
+        // Reuses an earlier search of this position if it went deep enough to settle the score here
+        long key = state.getHash();
+        long entry = table.probe(key);
+        int hashMove = previousBest(ply);
+        if (entry != TranspositionTable.MISS) {
+            if (hashMove == Move.NONE) {
+                hashMove = TranspositionTable.move(entry);
+            }
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        
+        int[] plyMoves = moves[ply];
+        int[] plyScores = scores[ply];
+        int count = generator.generateLegalMoves(state, plyMoves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        ordering.score(state, plyMoves, plyScores, count, ply, hashMove);
+        
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = MoveOrdering.pickNext(plyMoves, plyScores, i, count);
+            play(move);
+            line[ply] = move;
+            int score;
+            if (i == 0) {
+                score = -pvs(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -pvs(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -pvs(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            undo();
+            if (stopped) {
+                return 0;
+            }
+            
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            ordering.recordCutoff(side, move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        
+        int bound = best >= beta ? TranspositionTable.LOWER_BOUND
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+    
+    /**
+     * Converts a score for storing in the transposition table.  Mate scores are counted from the root,
+     * but the entry may be found at another ply, so they are stored counted from the node instead.
+     * 
+     * @param score The score.
+     * @param ply The distance of the node from the root.
+     * @return The score to store.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+    
+    /**
+     * Converts a score read from the transposition table back to one counted from the root.
+     * 
+     * @param score The stored score.
+     * @param ply The distance of the node from the root.
+     * @return The score.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+    
+    /**
+     * Searches captures and promotions only, until the position is quiet, so the evaluation is never taken
+     * in the middle of an exchange.  The side to move may also "stand pat" and keep the static evaluation,
+     * unless it is in check: then every evasion is searched, and having none is mate.
+     * 
+     * @param ply The distance from the root.
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The score of the node for the side to move.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        if (countNode()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(state);
+        }
+        // In check there is no standing pat: the side to move is mated unless an evasion does better
+        boolean inCheck = state.isInCheck(state.getSideToMove());
+        int best = inCheck ? -MATE + ply : evaluator.evaluate(state);
+        if (best >= beta) {
+            return best;
+        }
+        if (best > alpha) {
+            alpha = best;
+        }
+        
+        int[] plyMoves = moves[ply];
+        int[] plyScores = scores[ply];
+        int count = inCheck ? generator.generateLegalMoves(state, plyMoves)
+                : generator.generateLegalCaptures(state, plyMoves);
+        ordering.score(state, plyMoves, plyScores, count, ply, Move.NONE);
+        
+        for (int i = 0; i < count; i++) {
+            int move = MoveOrdering.pickNext(plyMoves, plyScores, i, count);
+            play(move);
+            line[ply] = move;
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            undo();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Counts a node and, every so often, checks whether the time is up.
+     * 
+     * @return true if the search has been stopped.
+     */
+    private boolean countNode() {
+        nodes++;
+        if ((nodes % TIME_CHECK_INTERVAL) == 0 && deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            stopped = true;
+        }
+        return stopped;
+    }
+    
+    /**
+     * Gets the move the last completed iteration chose at a ply, if the current line follows that iteration's best line.
+     * 
+     * @param ply The distance from the root.
+     * @return The move to try first, or Move.NONE.
+     */
+    private int previousBest(int ply) {
+        if (ply >= previousPvLength) {
+            return Move.NONE;
+        }
+        for (int i = 0; i < ply; i++) {
+            if (line[i] != previousPv[i]) {
+                return Move.NONE;
+            }
+        }
+        return previousPv[ply];
+    }
+    
+    /**
+     * Makes a new best move the start of the principal variation at a ply, followed by the line found below it.
+     * 
+     * @param ply The distance from the root.
+     * @param move The new best move.
+     */
+    private void updatePv(int ply, int move) {
+        int[] plyPv = pv[ply];
+        plyPv[0] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], 0, plyPv, 1, childLength);
+        pvLength[ply] = childLength + 1;
+    }
+    
+    /**
+     * Plays a move on the search position and hands the turn to the other side.
+     * 
+     * @param move The encoded move.
+     */
+    private void play(int move) {
+        state.makeMove(move);
+        state.switchSide();
+    }
+    
+    /**
+     * Takes back the last move played on the search position.
+     */
+    private void undo() {
+        state.unmakeMove();
+        state.switchSide();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+package main.java.engine;
+
+import main.java.Attacks;
+import main.java.BoardState;
+import main.java.PieceSquareTables;
+
+/**
+ * Scores a position for the search.
+ * Scores are in centipawns from the point of view of the side to move, so a positive score means that side is better.
+ * The score is tapered: every term has a middlegame and an endgame value, blended by the game phase.
+ * Material and piece-square values are summed incrementally by BoardState as moves are made, so only mobility,
+ * Pawn structure and King safety are worked out here, all with bit operations on the position's attack maps.
+ * Middlegame and endgame values are added up together, packed into one int (see score).
+ * Pawn structure scores are cached by the Pawn-only key of the position, so each instance should be used by one thread.
+ */
+public class Evaluator {
+    
+    // Value of each piece type, indexed by BoardState piece type, for move ordering.  The King is never traded.
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+    
+    // Mobility bonus per square a piece can go to beyond the usual number, by piece type.
+    private static final int[] MOBILITY = {0, score(4, 4), score(5, 5), score(2, 4), score(1, 2), 0};
+    private static final int[] MOBILITY_BASE = {0, 4, 6, 7, 13, 0};
+    
+    // Pawn structure.
+    private static final int DOUBLED_PAWN = score(-10, -20);
+    private static final int ISOLATED_PAWN = score(-10, -15);
+    private static final int[] PASSED_PAWN = { // By rows advanced from the starting row.
+        0, score(5, 10), score(10, 20), score(20, 40), score(35, 70), score(60, 120), score(100, 200), 0
+    };
+    
+    // King safety, middlegame only.
+    private static final int SHIELD_PAWN = 12; // Per own Pawn on the three squares in front of the King.
+    private static final int FAR_SHIELD_PAWN = 6; // Per own Pawn one row further forward.
+    private static final int[] ATTACK_UNITS = {0, 2, 2, 3, 5, 0}; // Per King zone square attacked, by piece type.
+    private static final int MAX_KING_DANGER = 500;
+    
+    // Squares in front of a Pawn on the same and adjacent columns, by color and square.  No enemy Pawn there means a passed Pawn.
+    private static final long[][] PASSED_MASKS = new long[2][64];
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            long columns = columnMask(square & 7) | adjacentColumns(square & 7);
+            // White moves towards row 0, so the squares in front are the lower rows
+            PASSED_MASKS[BoardState.WHITE][square] = columns & ((1L << (row * 8)) - 1);
+            PASSED_MASKS[BoardState.BLACK][square] = row == 7 ? 0L : columns & (-1L << ((row + 1) * 8));
+        }
+    }
+    
+    private final PawnCache pawnCache = new PawnCache(PawnCache.DEFAULT_ENTRIES);
+    
+    /**
+     * Evaluates a position.
+     * 
+     * @param state The position.
+     * @return The score in centipawns for the side to move.
+     */
+    public int evaluate(BoardState state) {
+        int total = evaluatePawns(state)
+                + evaluatePieces(state, BoardState.WHITE) - evaluatePieces(state, BoardState.BLACK);
+        int midgame = state.getMidgameScore() + midgame(total);
+        int endgame = state.getEndgameScore() + endgame(total);
+        
+        // Blends the two by the material left; promotions can push the phase past the maximum
+        int phase = Math.min(state.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return state.getSideToMove() == BoardState.WHITE ? score : -score;
+    }
+    
+    /**
+     * Evaluates the Pawn structure of both sides: doubled, isolated and passed Pawns.
+     * The score depends on the Pawns alone, so it is looked up in the Pawn cache first.
+     * 
+     * @param state The position.
+     * @return The packed score, positive when White is better.
+     */
+    public int evaluatePawns(BoardState state) {
+        long key = state.getPawnHash();
+        if (pawnCache.contains(key)) {
+            return pawnCache.get(key);
+        }
+        int score = evaluatePawns(state, BoardState.WHITE) - evaluatePawns(state, BoardState.BLACK);
+        pawnCache.put(key, score);
+        return score;
+    }
+    
+    /**
+     * Evaluates the Pawn structure of one side.
+     * 
+     * @param state The position.
+     * @param color The side.
+     * @return The packed score for that side.
+     */
+    private static int evaluatePawns(BoardState state, int color) {
+        long pawns = state.getPieces(color, BoardState.PAWN);
+        long enemyPawns = state.getPieces(color ^ 1, BoardState.PAWN);
+        int total = 0;
+        
+        for (int column = 0; column < 8; column++) {
+            long onColumn = pawns & columnMask(column);
+            if (onColumn == 0) {
+                continue;
+            }
+            int count = Long.bitCount(onColumn);
+            total += (count - 1) * DOUBLED_PAWN;
+            if ((pawns & adjacentColumns(column)) == 0) {
+                total += count * ISOLATED_PAWN;
+            }
+        }
+        
+        long remaining = pawns;
+        while (remaining != 0) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            if ((PASSED_MASKS[color][square] & enemyPawns) == 0) {
+                int advanced = color == BoardState.WHITE ? 6 - (square >>> 3) : (square >>> 3) - 1;
+                total += PASSED_PAWN[advanced];
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Evaluates the mobility of one side's pieces and the safety of the other side's King from them.
+     * 
+     * @param state The position.
+     * @param color The side whose pieces are scored.
+     * @return The packed score for that side.
+     */
+    private static int evaluatePieces(BoardState state, int color) {
+        int enemy = color ^ 1;
+        long own = state.getOccupancy(color);
+        // Squares guarded by enemy Pawns are not counted as places a piece can safely go
+        long unsafe = Attacks.pawnAttacks(enemy, state.getPieces(enemy, BoardState.PAWN));
+        int enemyKing = state.kingSquare(enemy);
+        long kingZone = enemyKing == BoardState.NO_SQUARE ? 0L : Attacks.kingAttacks(enemyKing) | (1L << enemyKing);
+        
+        int total = 0;
+        int attackUnits = 0;
+        int attackers = 0;
+        for (int type = BoardState.KNIGHT; type <= BoardState.QUEEN; type++) {
+            long pieces = state.getPieces(color, type);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long attacks = state.getAttacksFrom(square);
+                total += (Long.bitCount(attacks & ~own & ~unsafe) - MOBILITY_BASE[type]) * MOBILITY[type];
+                long zoneAttacks = attacks & kingZone;
+                if (zoneAttacks != 0) {
+                    attackers++;
+                    attackUnits += ATTACK_UNITS[type] * Long.bitCount(zoneAttacks);
+                }
+            }
+        }
+        
+        if (enemyKing != BoardState.NO_SQUARE) {
+            // A lone attacker is rarely dangerous; danger grows with the square of the attack
+            int danger = attackers < 2 ? 0 : Math.min(attackUnits * attackUnits, MAX_KING_DANGER);
+            total += score(danger - kingShelter(state, enemy, enemyKing), 0);
+        }
+        return total;
+    }
+    
+    /**
+     * Scores the Pawns sheltering a King: those on the three squares in front of it and the row beyond.
+     * 
+     * @param state The position.
+     * @param color The side of the King.
+     * @param king The King's square.
+     * @return The shelter bonus in middlegame centipawns.
+     */
+    private static int kingShelter(BoardState state, int color, int king) {
+        long pawns = state.getPieces(color, BoardState.PAWN);
+        long columns = columnMask(king & 7) | adjacentColumns(king & 7);
+        int row = king >>> 3;
+        int forward = color == BoardState.WHITE ? -1 : 1;
+        int near = row + forward;
+        int far = row + 2 * forward;
+        int shelter = 0;
+        if (near >= 0 && near < 8) {
+            shelter += SHIELD_PAWN * Long.bitCount(pawns & columns & (0xFFL << (near * 8)));
+        }
+        if (far >= 0 && far < 8) {
+            shelter += FAR_SHIELD_PAWN * Long.bitCount(pawns & columns & (0xFFL << (far * 8)));
+        }
+        return shelter;
+    }
+    
+    /**
+     * Gets a bitboard of one column.
+     * 
+     * @param column The column, 0 to 7.
+     * @return A bitboard of the column.
+     */
+    private static long columnMask(int column) {
+        return Attacks.FILE_A << column;
+    }
+    
+    /**
+     * Gets a bitboard of the columns on either side of a column.
+     * 
+     * @param column The column, 0 to 7.
+     * @return A bitboard of the neighbouring columns.
+     */
+    private static long adjacentColumns(int column) {
+        long mask = 0L;
+        if (column > 0) {
+            mask |= columnMask(column - 1);
+        }
+        if (column < 7) {
+            mask |= columnMask(column + 1);
+        }
+        return mask;
+    }
+    
+    /**
+     * Packs a middlegame and an endgame value into one int, so both can be added up at once.
+     * The endgame value is in the upper 16 bits and the middlegame value in the lower 16 bits.
+     * 
+     * @param midgame The middlegame value.
+     * @param endgame The endgame value.
+     * @return The packed score.
+     */
+    public static int score(int midgame, int endgame) {
+        return (endgame << 16) + midgame;
+    }
+    
+    /**
+     * Gets the middlegame value of a packed score.
+     * 
+     * @param score The packed score.
+     * @return The middlegame value.
+     */
+    public static int midgame(int score) {
+        return (short) score;
+    }
+    
+    /**
+     * Gets the endgame value of a packed score.
+     * 
+     * @param score The packed score.
+     * @return The endgame value.
+     */
+    public static int endgame(int score) {
+        // Rounds up when the middlegame value is negative and has borrowed from the upper half
+        return (score + 0x8000) >> 16;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package main.java.engine;
+
+import main.java.BoardState;
+import main.java.Move;
+
+/**
+ * Orders moves so the search tries the most promising first, which lets alpha-beta cut off more of the tree.
+ * The best move from the previous iteration goes first, then captures by most valuable victim and least valuable
+ * attacker (MVV-LVA), then the killer moves of the ply, then quiet moves by their history score.
+ */
+public class MoveOrdering {
+    
+    // Score bands, from first to last.  Captures and history scores stay inside their band.
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 24;
+    private static final int KILLER_SCORE = 1 << 22;
+    private static final int HISTORY_LIMIT = 1 << 20;
+    
+    private final int[][] killers; // Two quiet moves per ply that caused a cutoff in a sibling node.
+    private final int[][] history = new int[2][64 * 64]; // Cutoff counts of quiet moves by side, from and to square.
+    
+    /**
+     * Constructor.
+     * 
+     * @param maxPly The deepest ply killer moves are kept for.
+     */
+    public MoveOrdering(int maxPly) {
+        killers = new int[maxPly][2];
+    }
+    
+    /**
+     * Forgets the killer moves and ages the history scores, ready for a new search.
+     */
+    public void newSearch() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+        for (int[] sideHistory : history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] >>= 3;
+            }
+        }
+    }
+    
+    /**
+     * Scores each move in a list for ordering.
+     * 
+     * @param state The position the moves are for.
+     * @param moves The moves.
+     * @param scores The buffer to write the score of each move into.
+     * @param count The number of moves.
+     * @param ply The distance from the root, used to find the killer moves.
+     * @param hashMove A move to try first, or Move.NONE.
+     */
+    public void score(BoardState state, int[] moves, int[] scores, int count, int ply, int hashMove) {
+        int side = state.getSideToMove();
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                scores[i] = CAPTURE_SCORE + captureValue(state, move);
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[side][move & 0xFFF];
+            }
+        }
+    }
+    
+    /**
+     * Gets the MVV-LVA value of a capture or promotion: the value of the captured piece and any promotion,
+     * less a fraction of the capturing piece's value.
+     * 
+     * @param state The position.
+     * @param move The capture or promotion.
+     * @return The ordering value, higher for better captures.
+     */
+    private static int captureValue(BoardState state, int move) {
+        int victim = state.pieceAt(Move.to(move));
+        // An en passant capture finds the ending square empty, but always takes a Pawn
+        int value = victim == BoardState.NO_PIECE ? 0 : Evaluator.PIECE_VALUES[BoardState.typeOf(victim)];
+        if (Move.flags(move) == Move.EN_PASSANT) {
+            value = Evaluator.PIECE_VALUES[BoardState.PAWN];
+        }
+        if (Move.isPromotion(move)) {
+            value += Evaluator.PIECE_VALUES[Move.promotionType(move)];
+        }
+        int attacker = BoardState.typeOf(state.pieceAt(Move.from(move)));
+        return value * 16 - attacker;
+    }
+    
+    /**
+     * Moves the highest scored of the remaining moves into place, so moves are sorted only as far as they are searched.
+     * 
+     * @param moves The moves.
+     * @param scores The score of each move.
+     * @param index The position to fill; moves before it are already in order.
+     * @param count The number of moves.
+     * @return The move now at the index.
+     */
+    public static int pickNext(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+    
+    /**
+     * Records a quiet move that caused a beta cutoff, as a killer for the ply and in the history table.
+     * 
+     * @param side The side that played the move.
+     * @param move The move.
+     * @param ply The distance from the root.
+     * @param depth The remaining depth of the node, deeper cutoffs counting for more.
+     */
+    public void recordCutoff(int side, int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] sideHistory = history[side];
+        sideHistory[move & 0xFFF] += depth * depth;
+        if (sideHistory[move & 0xFFF] >= HISTORY_LIMIT) {
+            // Halves every score so the table keeps its order without reaching the killer band
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] >>= 1;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+package main.java.engine;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import main.java.Board;
+import main.java.BoardState;
+import main.java.ChessTimer;
+
+/**
+ * Searches with several threads at once ("Lazy SMP").  Every thread runs its own Engine on its own copy of the
+ * position, and all of them share one transposition table, so results found by one thread speed up the others.
+ * The calling thread runs the main search and its result is the one returned; the helper threads only fill the table,
+ * and are stopped as soon as the main search finishes.
+ */
+public class ParallelSearch {
+    
+    // Default number of threads: one per available processor.
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+    
+    private final TranspositionTable table;
+    private Engine[] engines;
+    private ExecutorService helpers;
+    
+    /**
+     * Constructor.
+     * 
+     * @param threads The number of search threads, including the calling thread.
+     * @param hashMegabytes The size of the shared transposition table in megabytes.
+     * @throws IllegalArgumentException if the thread count or table size is less than 1.
+     */
+    public ParallelSearch(int threads, int hashMegabytes) {
+        table = new TranspositionTable(hashMegabytes);
+        setThreads(threads);
+    }
+    
+    /**
+     * Sets the number of search threads.  Must not be called while a search is running.
+     * 
+     * @param threads The number of search threads, including the calling thread.
+     * @throws IllegalArgumentException if the thread count is less than 1.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        shutdown();
+        engines = new Engine[threads];
+        for (int i = 0; i < threads; i++) {
+            engines[i] = new Engine(table);
+        }
+        if (threads > 1) {
+            helpers = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "Search helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * Gets the number of search threads.
+     * 
+     * @return The thread count, including the calling thread.
+     */
+    public int getThreads() {
+        return engines.length;
+    }
+    
+    /**
+     * Gets the shared transposition table.
+     * 
+     * @return The transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+    
+    /**
+     * Finds a move for the current player, searching to a fixed depth.
+     * 
+     * @param board The board.  It is not changed.
+     * @param depth The depth to search to, in plies.
+     * @return The best move found, or Move.NONE if the current player has no legal move.
+     */
+    public int findBestMove(Board board, int depth) {
+        return search(board.getState(), depth, 0);
+    }
+    
+    /**
+     * Finds a move for the current player within a share of the time left on their clock.
+     * 
+     * @param board The board.  It is not changed.
+     * @param timer The current player's timer.
+     * @return The best move found, or Move.NONE if the current player has no legal move.
+     */
+    public int findBestMove(Board board, ChessTimer timer) {
+        return search(board.getState(), Engine.MAX_PLY - 1, Engine.timeBudget(timer));
+    }
+    
+    /**
+     * Searches a position on every thread.
+     * 
+     * @param root The position to search.  It is copied, not changed.
+     * @param maxDepth The deepest iteration, in plies.
+     * @param timeBudgetMillis The time budget in milliseconds, or 0 for no limit.
+     * @return The best move found by the main search, or Move.NONE if the side to move has no legal move.
+     * @throws IllegalArgumentException if the depth is not between 1 and Engine.MAX_PLY - 1.
+     */
+    public int search(BoardState root, int maxDepth, long timeBudgetMillis) {
+        if (maxDepth < 1 || maxDepth >= Engine.MAX_PLY) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + (Engine.MAX_PLY - 1));
+        }
+        table.newSearch();
+        Future<?>[] running = new Future<?>[engines.length];
+        for (int i = 1; i < engines.length; i++) {
+            Engine helper = engines[i];
+            // Every other helper starts one ply deeper, so the threads are not all on the same iteration
+            int startDepth = 1 + (i & 1);
+            running[i] = helpers.submit(() -> helper.search(root, maxDepth, timeBudgetMillis, startDepth));
+        }
+        
+        Engine main = engines[0];
+        int bestMove;
+        try {
+            bestMove = main.search(root, maxDepth, timeBudgetMillis, 1);
+        } finally {
+            for (int i = 1; i < engines.length; i++) {
+                engines[i].stop();
+            }
+            for (int i = 1; i < engines.length; i++) {
+                waitFor(running[i]);
+            }
+            // Cleared only now, so a stop sent from another thread just before the search began is not lost
+            for (Engine engine : engines) {
+                engine.clearStop();
+            }
+        }
+        return bestMove;
+    }
+    
+    /**
+     * Stops a search running on another thread.  The search returns the best move of its last completed iteration.
+     * A stop sent just before the search starts makes it return after its first iteration.
+     */
+    public void stop() {
+        for (Engine engine : engines) {
+            engine.stop();
+        }
+    }
+    
+    /**
+     * Gets the number of positions visited by the last search, summed over every thread.
+     * 
+     * @return The node count.
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (Engine engine : engines) {
+            nodes += engine.getNodes();
+        }
+        return nodes;
+    }
+    
+    /**
+     * Gets the depth of the last completed iteration of the main search.
+     * 
+     * @return The depth in plies.
+     */
+    public int getCompletedDepth() {
+        return engines[0].getCompletedDepth();
+    }
+    
+    /**
+     * Gets the score of the best move of the last search.
+     * 
+     * @return The score in centipawns for the side that was to move, or a mate score.
+     */
+    public int getBestScore() {
+        return engines[0].getBestScore();
+    }
+    
+    /**
+     * Stops the helper threads, e.g. when the application closes.  Call setThreads before searching again.
+     */
+    public void shutdown() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+            helpers = null;
+        }
+    }
+    
+    /**
+     * Waits for a helper search to finish.
+     * 
+     * @param future The helper search, or null if it was never started.
+     */
+    private static void waitFor(Future<?> future) {
+        if (future == null) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Helper search failed", e.getCause());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package main.java.engine;
+
+/**
+ * Small fixed-size cache of Pawn structure scores, keyed by the Pawn-only Zobrist key of a position.
+ * The Pawns change in only a few of the moves searched, so most evaluations find their Pawn score here.
+ * Each entry is two longs in one flat long[]: the key XORed with the score, then the score.
+ * A colliding position simply overwrites the entry.  Each Evaluator has its own cache, so it is not shared between threads.
+ */
+public class PawnCache {
+    
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+    
+    private final long[] entries;
+    private final int mask;
+    
+    /**
+     * Constructor.
+     * 
+     * @param size The number of entries.  Rounded down to a power of two.
+     * @throws IllegalArgumentException if the size is less than 1.
+     */
+    public PawnCache(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pawn cache size must be at least 1");
+        }
+        int count = Integer.highestOneBit(size);
+        entries = new long[count * 2];
+        mask = count - 1;
+    }
+    
+    /**
+     * Looks up the Pawn score of a position.
+     * 
+     * @param pawnKey The Pawn-only Zobrist key.
+     * @return true if the key is cached.
+     */
+    public boolean contains(long pawnKey) {
+        int index = ((int) pawnKey & mask) * 2;
+        return (entries[index] ^ entries[index + 1]) == pawnKey;
+    }
+    
+    /**
+     * Gets the cached Pawn score of a position.  Only valid after contains returned true for the key.
+     * 
+     * @param pawnKey The Pawn-only Zobrist key.
+     * @return The packed Pawn score.
+     */
+    public int get(long pawnKey) {
+        return (int) entries[((int) pawnKey & mask) * 2 + 1];
+    }
+    
+    /**
+     * Caches the Pawn score of a position.
+     * 
+     * @param pawnKey The Pawn-only Zobrist key.
+     * @param score The packed Pawn score.
+     */
+    public void put(long pawnKey, int score) {
+        int index = ((int) pawnKey & mask) * 2;
+        entries[index] = pawnKey ^ score;
+        entries[index + 1] = score;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package main.java.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, keyed by the Zobrist key of a position, so a position reached again
+ * by a different move order, or in a later iteration, reuses the earlier search.
+ * Entries are two longs in one flat long[]: the key XORed with the data, then the data.  Several threads can read
+ * and write the table without locks; an entry torn by a concurrent write no longer XORs back to its key
+ * and is simply treated as a miss.
+ * Entries are grouped in buckets of two.  A new result replaces the entry in its bucket that is oldest or
+ * least deep, so results from earlier searches give way to the current one.
+ */
+public class TranspositionTable {
+    
+    // Kinds of score.  An exact score is the true score; a lower bound caused a cutoff; an upper bound failed low.
+    public static final int UPPER_BOUND = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int EXACT = 3;
+    
+    // Returned by probe when the position is not in the table.  Real data is never 0, as the bound is never 0.
+    public static final long MISS = 0L;
+    
+    public static final int DEFAULT_SIZE_MB = 16;
+    
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 2;
+    
+    // Layout of the data word: move in bits 0-15, score in 16-31, depth in 32-39, bound in 40-41, generation in 42-47.
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+    private static final int GENERATION_MASK = 0x3F;
+    
+    private long[] table;
+    private long bucketMask;
+    private volatile int generation;
+    
+    /**
+     * Constructor.
+     * 
+     * @param megabytes The size of the table in megabytes.  Rounded down to a power of two.
+     * @throws IllegalArgumentException if the size is less than 1 MB.
+     */
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+    
+    /**
+     * Reallocates the table, dropping every entry.  Must not be called while a search is using the table.
+     * 
+     * @param megabytes The size of the table in megabytes.  Rounded down to a power of two.
+     * @throws IllegalArgumentException if the size is less than 1 MB.
+     */
+    public void resize(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Transposition table size must be at least 1 MB");
+        }
+        long entries = Long.highestOneBit(megabytes * (1L << 20) / ENTRY_BYTES);
+        // A Java array holds at most 2^31 - 1 longs
+        entries = Math.min(entries, 1L << 29);
+        table = new long[(int) entries * 2];
+        bucketMask = entries / BUCKET_ENTRIES - 1;
+        generation = 0;
+    }
+    
+    /**
+     * Removes every entry.  Must not be called while a search is using the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        generation = 0;
+    }
+    
+    /**
+     * Starts a new search.  Entries stored by earlier searches are replaced first.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+    
+    /**
+     * Gets the size of the table.
+     * 
+     * @return The size in megabytes.
+     */
+    public int getSizeMb() {
+        return (int) ((long) table.length * 8 >>> 20);
+    }
+    
+    /**
+     * Looks up a position.
+     * 
+     * @param key The Zobrist key of the position.
+     * @return The data word of the entry, read with the static accessors, or MISS.
+     */
+    public long probe(long key) {
+        long[] entries = table;
+        int index = bucketIndex(key);
+        for (int i = 0; i < BUCKET_ENTRIES; i++, index += 2) {
+            long data = entries[index + 1];
+            if ((entries[index] ^ data) == key && data != MISS) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+    
+    /**
+     * Stores the result of a search.
+     * 
+     * @param key The Zobrist key of the position.
+     * @param move The best move found, or Move.NONE.
+     * @param score The score, adjusted so mate scores count from this position rather than the root.
+     * @param depth The depth searched.
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long[] entries = table;
+        int bucket = bucketIndex(key);
+        int current = generation;
+        
+        // Reuses the position's own entry, or else replaces the one that is oldest and shallowest
+        int target = bucket;
+        int worst = Integer.MAX_VALUE;
+        for (int i = 0, index = bucket; i < BUCKET_ENTRIES; i++, index += 2) {
+            long data = entries[index + 1];
+            if ((entries[index] ^ data) == key || data == MISS) {
+                if (move == 0 && data != MISS) {
+                    // Keeps the best move already known when this search did not find one
+                    move = move(data);
+                }
+                target = index;
+                break;
+            }
+            int age = (current - (int) (data >>> GENERATION_SHIFT)) & GENERATION_MASK;
+            int value = depth(data) - 8 * age;
+            if (value < worst) {
+                worst = value;
+                target = index;
+            }
+        }
+        
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << SCORE_SHIFT)
+                | ((long) Math.max(0, Math.min(depth, 255)) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) current << GENERATION_SHIFT);
+        entries[target] = key ^ data;
+        entries[target + 1] = data;
+    }
+    
+    /**
+     * Estimates how full the table is by sampling the first thousand entries.
+     * 
+     * @return The number of entries per thousand used by the current search.
+     */
+    public int hashfull() {
+        int used = 0;
+        int sample = Math.min(1000, table.length / 2);
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2 + 1];
+            if (data != MISS && (int) (data >>> GENERATION_SHIFT) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+    
+    /**
+     * Gets the best move stored in a data word.
+     * 
+     * @param data The data word returned by probe.
+     * @return The encoded move, or Move.NONE.
+     */
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+    
+    /**
+     * Gets the score stored in a data word.
+     * 
+     * @param data The data word returned by probe.
+     * @return The score.
+     */
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+    
+    /**
+     * Gets the search depth stored in a data word.
+     * 
+     * @param data The data word returned by probe.
+     * @return The depth.
+     */
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+    
+    /**
+     * Gets the kind of score stored in a data word.
+     * 
+     * @param data The data word returned by probe.
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+    
+    /**
+     * Gets the index of the first entry of the bucket for a key.
+     * 
+     * @param key The Zobrist key.
+     * @return The index into the table of the bucket's first long.
+     */
+    private int bucketIndex(long key) {
+        return (int) (key & bucketMask) * BUCKET_ENTRIES * 2;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,346 @@
+package main.java.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import main.java.BoardState;
+import main.java.Move;
+import main.java.MoveGenerator;
+import main.java.Perft;
+import main.java.book.PolyglotBook;
+
+/**
+ * Headless entry point that speaks the Universal Chess Interface (UCI) over standard input and output,
+ * so the engine can be driven by tournament managers and analysis tools without starting JavaFX.
+ * Supports uci, isready, setoption (Hash, Threads, OwnBook, BookFile), ucinewgame, position, go, stop and quit,
+ * plus "go perft n" for checking move generation.  With OwnBook on, "go" answers from the Polyglot book
+ * at once while the position is in it.
+ */
+public class UciMain {
+    
+    private static final int MAX_CP_SCORE = 10000; // Largest score sent as "cp"; beyond it a score no longer counts pawns.
+    private final PrintStream out;
+    private final ParallelSearch search = new ParallelSearch(1, TranspositionTable.DEFAULT_SIZE_MB);
+    private final MoveGenerator generator = new MoveGenerator();
+    private final BoardState position = new BoardState();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private Thread searchThread;
+    private PolyglotBook book;
+    private boolean ownBook;
+    private final Random random = new Random();
+    
+    /**
+     * Constructor.
+     * 
+     * @param out The stream to write responses to.
+     */
+    public UciMain(PrintStream out) {
+        this.out = out;
+        position.loadFen(BoardState.STARTING_FEN);
+    }
+    
+    /**
+     * Runs the engine on standard input and output until "quit" or the end of input.
+     * 
+     * @param args Not used.
+     * @throws IOException if standard input cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        UciMain uci = new UciMain(System.out);
+        uci.run(new BufferedReader(new InputStreamReader(System.in)));
+    }
+    
+    /**
+     * Reads and handles commands until "quit" or the end of input.
+     * 
+     * @param in The command source.
+     * @throws IOException if the input cannot be read.
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!handle(line.trim())) {
+                break;
+            }
+        }
+        stopSearch();
+        search.shutdown();
+        if (book != null) {
+            book.close();
+        }
+    }
+    
+    /**
+     * Handles one command.  Unknown commands are ignored, as the protocol requires.
+     * 
+     * @param line The command line.
+     * @return false if the command was "quit".
+     */
+    public boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+        switch (tokens[0]) {
+            case "uci":
+                out.println("id name OOP-Chess");
+                out.println("id author OOP-Chess contributors");
+                out.println("option name Hash type spin default " + TranspositionTable.DEFAULT_SIZE_MB + " min 1 max 65536");
+                out.println("option name Threads type spin default 1 min 1 max 512");
+                out.println("option name OwnBook type check default false");
+                out.println("option name BookFile type string default <empty>");
+                out.println("uciok");
+                break;
+            case "isready":
+                out.println("readyok");
+                break;
+            case "setoption":
+                waitForSearch();
+                setOption(line, tokens);
+                break;
+            case "ucinewgame":
+                waitForSearch();
+                search.getTranspositionTable().clear();
+                break;
+            case "position":
+                waitForSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                waitForSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                break;
+        }
+        out.flush();
+        return true;
+    }
+    
+    /**
+     * Handles "setoption name (Hash|Threads) value n", "setoption name OwnBook value (true|false)"
+     * and "setoption name BookFile value path".
+     * 
+     * @param line The command.
+     * @param tokens The command, split on spaces.
+     */
+    private void setOption(String line, String[] tokens) {
+        String name = valueAfter(tokens, "name");
+        String value = valueAfter(tokens, "value");
+        if (name == null || value == null) {
+            return;
+        }
+        try {
+            if (name.equalsIgnoreCase("Hash")) {
+                search.getTranspositionTable().resize(Integer.parseInt(value));
+            } else if (name.equalsIgnoreCase("Threads")) {
+                search.setThreads(Integer.parseInt(value));
+            } else if (name.equalsIgnoreCase("OwnBook")) {
+                ownBook = Boolean.parseBoolean(value);
+            } else if (name.equalsIgnoreCase("BookFile")) {
+                setBook(line.substring(line.indexOf(" value ") + 7).trim());
+            }
+        } catch (IllegalArgumentException e) {
+            out.println("info string " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Opens the opening book, closing the one open before.
+     * 
+     * @param path The Polyglot book file, or "" or "<empty>" for none.
+     */
+    private void setBook(String path) {
+        try {
+            if (book != null) {
+                book.close();
+                book = null;
+            }
+            if (!path.isEmpty() && !path.equals("<empty>")) {
+                book = new PolyglotBook(Paths.get(path));
+            }
+        } catch (IOException e) {
+            out.println("info string Cannot open book " + path + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Handles "position (startpos|fen ...) [moves ...]".
+     * 
+     * @param tokens The command, split on spaces.
+     */
+    private void setPosition(String[] tokens) {
+        int index = 1;
+        String fen = BoardState.STARTING_FEN;
+        if (tokens.length > 1 && tokens[1].equals("fen")) {
+            StringBuilder builder = new StringBuilder();
+            for (index = 2; index < tokens.length && !tokens[index].equals("moves"); index++) {
+                builder.append(tokens[index]).append(' ');
+            }
+            fen = builder.toString();
+        } else {
+            index = 2;
+        }
+        try {
+            position.loadFen(fen);
+        } catch (IllegalArgumentException e) {
+            out.println("info string " + e.getMessage());
+            position.loadFen(BoardState.STARTING_FEN);
+            return;
+        }
+        
+        if (index < tokens.length && tokens[index].equals("moves")) {
+            for (index++; index < tokens.length; index++) {
+                int move = parseMove(tokens[index]);
+                if (move == Move.NONE) {
+                    out.println("info string Illegal move " + tokens[index]);
+                    return;
+                }
+                position.makeMove(move);
+                position.switchSide();
+            }
+        }
+    }
+    
+    /**
+     * Finds the legal move written in coordinate notation, e.g. "e2e4" or "e7e8q".
+     * 
+     * @param text The move.
+     * @return The encoded move, or Move.NONE if it is not legal in the current position.
+     */
+    private int parseMove(String text) {
+        int count = generator.generateLegalMoves(position, moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toString(moves[i]).equals(text)) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+    
+    /**
+     * Handles "go" with depth, movetime, wtime/btime/winc/binc or infinite, and "go perft n".
+     * The search runs on its own thread, so "stop" and "isready" are answered while it thinks.
+     * 
+     * @param tokens The command, split on spaces.
+     */
+    private void go(String[] tokens) {
+        if (tokens.length > 2 && tokens[1].equals("perft")) {
+            long start = System.nanoTime();
+            long nodes = new Perft().divide(position, Integer.parseInt(tokens[2]), out);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            out.println("info nodes " + nodes + " time " + millis);
+            return;
+        }
+        
+        if (ownBook && book != null && !Arrays.asList(tokens).contains("infinite")) {
+            int bookMove = book.probe(position, random);
+            if (bookMove != Move.NONE) {
+                out.println("info string book move");
+                out.println("bestmove " + Move.toString(bookMove));
+                return;
+            }
+        }
+        
+        int depth = Engine.MAX_PLY - 1;
+        long budget = 0;
+        String white = position.getSideToMove() == BoardState.WHITE ? "w" : "b";
+        try {
+            if (valueAfter(tokens, "depth") != null) {
+                depth = Math.max(1, Math.min(Engine.MAX_PLY - 1, Integer.parseInt(valueAfter(tokens, "depth"))));
+            }
+            if (valueAfter(tokens, "movetime") != null) {
+                budget = Long.parseLong(valueAfter(tokens, "movetime"));
+            } else if (valueAfter(tokens, white + "time") != null) {
+                long remaining = Long.parseLong(valueAfter(tokens, white + "time"));
+                String increment = valueAfter(tokens, white + "inc");
+                budget = Engine.timeBudget(remaining, increment == null ? 0 : Long.parseLong(increment));
+            }
+        } catch (NumberFormatException e) {
+            out.println("info string Invalid go parameter");
+            return;
+        }
+        
+        // The search gets its own copy, so a new "position" cannot change it mid-search
+        BoardState root = new BoardState();
+        root.copyFrom(position);
+        int maxDepth = depth;
+        long timeBudget = budget;
+        searchThread = new Thread(() -> {
+            long start = System.nanoTime();
+            int best = search.search(root, maxDepth, timeBudget);
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            String scoreText = scoreText(search.getBestScore());
+            synchronized (out) {
+                out.println("info depth " + search.getCompletedDepth() + " score " + scoreText
+                        + " nodes " + search.getNodes() + " nps " + search.getNodes() * 1000 / millis
+                        + " time " + millis + " hashfull " + search.getTranspositionTable().hashfull());
+                out.println("bestmove " + (best == Move.NONE ? "0000" : Move.toString(best)));
+                out.flush();
+            }
+        }, "UCI search");
+        searchThread.start();
+    }
+    
+    /**
+     * Stops the running search, if any, and waits for it to print its best move.
+     */
+    private void stopSearch() {
+        if (searchThread != null) {
+            search.stop();
+            waitForSearch();
+        }
+    }
+    
+    /**
+     * Waits for the running search, if any, to finish by itself.  Commands that change the position or options
+     * are only sent once the search has answered, but are held back here in case they arrive early.
+     */
+    private void waitForSearch() {
+        if (searchThread == null) {
+            return;
+        }
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+    
+    /**
+     * Writes a search score as UCI reports it: "mate n" in moves for a mate the search found, and "cp n"
+     * otherwise, clamped so no other score can pass for a mate or a huge material edge.
+     * 
+     * @param score The score from the side to move's point of view.
+     * @return The score text, e.g. "cp 35" or "mate -2".
+     */
+    private static String scoreText(int score) {
+        if (Math.abs(score) >= Engine.MATE - Engine.MAX_PLY && Math.abs(score) <= Engine.MATE) {
+            return "mate " + (score > 0 ? (Engine.MATE - score + 1) / 2 : -(Engine.MATE + score) / 2);
+        }
+        return "cp " + Math.max(-MAX_CP_SCORE, Math.min(MAX_CP_SCORE, score));
+    }
+    
+    /**
+     * Gets the token following a keyword, e.g. the number after "depth".
+     * 
+     * @param tokens The command, split on spaces.
+     * @param keyword The keyword.
+     * @return The following token, or null if the keyword is missing or last.
+     */
+    private static String valueAfter(String[] tokens, String keyword) {
+        for (int i = 0; i < tokens.length - 1; i++) {
+            if (tokens[i].equals(keyword)) {
+                return tokens[i + 1];
+            }
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,223 @@
+package main.java.pgn;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import main.java.Move;
+import main.resources.database.Profile;
+
+/**
+ * Totals gathered while importing PGN games: how many games and moves were read, each player's wins, losses
+ * and draws, and how each opening scored.  Each worker of an import fills its own instance, and they are merged
+ * at the end, so no locking is needed.
+ */
+public class ImportStats {
+    
+    // Index of each count in the int[3] results arrays.
+    public static final int WINS = 0;
+    public static final int LOSSES = 1;
+    public static final int DRAWS = 2;
+    
+    // Number of moves that name an opening when a game has no ECO tag.
+    private static final int OPENING_PLIES = 6;
+    
+    private long games;
+    private long moves;
+    private long errors;
+    private long elapsedNanos;
+    private final Map<String, int[]> players = new HashMap<>();
+    private final Map<String, int[]> openings = new HashMap<>();
+    
+    /**
+     * Adds a game to the totals.
+     * 
+     * @param game The game.
+     */
+    public void add(PgnGame game) {
+        games++;
+        moves += game.getMoveCount();
+        int whiteResult;
+        switch (game.getResult()) {
+            case PgnGame.WHITE_WINS:
+                whiteResult = WINS;
+                break;
+            case PgnGame.BLACK_WINS:
+                whiteResult = LOSSES;
+                break;
+            case PgnGame.DRAW:
+                whiteResult = DRAWS;
+                break;
+            default:
+                return; // Unfinished games do not count towards anyone's results
+        }
+        int blackResult = whiteResult == DRAWS ? DRAWS : whiteResult ^ 1;
+        count(players, game.getTag("White"), whiteResult);
+        count(players, game.getTag("Black"), blackResult);
+        count(openings, openingName(game), whiteResult);
+    }
+    
+    /**
+     * Counts a game that could not be read.
+     */
+    public void addError() {
+        errors++;
+    }
+    
+    /**
+     * Adds another set of totals to this one.
+     * 
+     * @param other The totals to add.
+     * @return This instance.
+     */
+    public ImportStats merge(ImportStats other) {
+        games += other.games;
+        moves += other.moves;
+        errors += other.errors;
+        merge(players, other.players);
+        merge(openings, other.openings);
+        return this;
+    }
+    
+    /**
+     * Adds the players' results to their profiles, matched by name.  Players without a profile are left out.
+     * Save the profiles afterwards with Profile.saveProfilesToCSV.
+     * 
+     * @param profiles The profiles to update.
+     * @return The number of profiles updated.
+     */
+    public int updateProfiles(List<Profile> profiles) {
+        int updated = 0;
+        for (Profile profile : profiles) {
+            int[] results = players.get(profile.getName());
+            if (results != null) {
+                profile.setWins(profile.getWins() + results[WINS]);
+                profile.setLosses(profile.getLosses() + results[LOSSES]);
+                profile.setDraws(profile.getDraws() + results[DRAWS]);
+                updated++;
+            }
+        }
+        return updated;
+    }
+    
+    /**
+     * Gets the number of games read, not counting those with errors.
+     * 
+     * @return The number of games.
+     */
+    public long getGames() {
+        return games;
+    }
+    
+    /**
+     * Gets the number of moves in the games read.
+     * 
+     * @return The number of moves.
+     */
+    public long getMoves() {
+        return moves;
+    }
+    
+    /**
+     * Gets the number of games that could not be read, e.g. because of an illegal move.
+     * 
+     * @return The number of games.
+     */
+    public long getErrors() {
+        return errors;
+    }
+    
+    /**
+     * Gets each player's results.
+     * 
+     * @return A map from player name to {wins, losses, draws}.
+     */
+    public Map<String, int[]> getPlayers() {
+        return players;
+    }
+    
+    /**
+     * Gets each opening's results from White's point of view.  Openings are named by the ECO tag,
+     * or by the first moves in coordinate notation when there is none.
+     * 
+     * @return A map from opening to {White wins, White losses, draws}.
+     */
+    public Map<String, int[]> getOpenings() {
+        return openings;
+    }
+    
+    /**
+     * Sets how long the import took.
+     * 
+     * @param elapsedNanos The time in nanoseconds.
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * Gets how long the import took.
+     * 
+     * @return The time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+    
+    /**
+     * Gets the import speed.
+     * 
+     * @return The games read, including those with errors, per second.
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : (games + errors) * 1e9 / elapsedNanos;
+    }
+    
+    /**
+     * Gets the name an opening is counted under.
+     * 
+     * @param game The game.
+     * @return The ECO code, or the first moves in coordinate notation.
+     */
+    private static String openingName(PgnGame game) {
+        String eco = game.getTag("ECO");
+        if (eco != null && !eco.equals("?")) {
+            return eco;
+        }
+        StringBuilder name = new StringBuilder(OPENING_PLIES * 5);
+        for (int i = 0; i < Math.min(OPENING_PLIES, game.getMoveCount()); i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            name.append(Move.toString(game.getMove(i)));
+        }
+        return name.toString();
+    }
+    
+    /**
+     * Adds one result to a count.
+     * 
+     * @param counts The counts, by name.
+     * @param name The name to count under.  Nothing is counted if it is null.
+     * @param result WINS, LOSSES or DRAWS.
+     */
+    private static void count(Map<String, int[]> counts, String name, int result) {
+        if (name != null) {
+            counts.computeIfAbsent(name, key -> new int[3])[result]++;
+        }
+    }
+    
+    /**
+     * Adds one set of counts to another.
+     * 
+     * @param into The counts to add to.
+     * @param from The counts to add.
+     */
+    private static void merge(Map<String, int[]> into, Map<String, int[]> from) {
+        for (Map.Entry<String, int[]> entry : from.entrySet()) {
+            int[] counts = into.computeIfAbsent(entry.getKey(), key -> new int[3]);
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += entry.getValue()[i];
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,104 @@
+package main.java.pgn;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import main.java.BoardState;
+
+/**
+ * One game from a PGN file: its tag pairs, its moves and its result.
+ * Moves are kept as encoded ints (see Move) rather than as text, so a game takes little memory
+ * and can be replayed straight onto a Board.
+ */
+public class PgnGame {
+    
+    // Game results, as written in PGN.
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN = "*";
+    
+    private final Map<String, String> tags;
+    private final int[] moves;
+    private final String result;
+    
+    /**
+     * Constructor.
+     * 
+     * @param tags The tag pairs, e.g. "White" to the name of the White player, in the order they should be written.
+     * @param moves The encoded moves, legal one after the other from the starting position.
+     * @param result The result: WHITE_WINS, BLACK_WINS, DRAW or UNKNOWN.
+     */
+    public PgnGame(Map<String, String> tags, int[] moves, String result) {
+        this.tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        this.moves = moves.clone();
+        this.result = result;
+    }
+    
+    /**
+     * Gets the value of a tag pair.
+     * 
+     * @param name The tag name, e.g. "White" or "Date".
+     * @return The value, or null if the game has no such tag.
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+    
+    /**
+     * Gets every tag pair, in the order they were read.
+     * 
+     * @return An unmodifiable map of tag names to values.
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+    
+    /**
+     * Gets the position the game starts from: the FEN tag if there is one, otherwise the usual starting position.
+     * 
+     * @return The starting position as a FEN string.
+     */
+    public String getStartFen() {
+        String fen = tags.get("FEN");
+        return fen != null ? fen : BoardState.STARTING_FEN;
+    }
+    
+    /**
+     * Gets the number of moves, counting each player's move separately.
+     * 
+     * @return The number of moves.
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+    
+    /**
+     * Gets one of the moves.
+     * 
+     * @param index The index of the move, 0 for the first move.
+     * @return The encoded move.
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+    
+    /**
+     * Gets the moves.
+     * 
+     * @return A copy of the encoded moves.
+     */
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, moves.length);
+    }
+    
+    /**
+     * Gets the result of the game.
+     * 
+     * @return WHITE_WINS, BLACK_WINS, DRAW or UNKNOWN.
+     */
+    public String getResult() {
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,227 @@
+package main.java.pgn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import main.java.Board;
+
+/**
+ * Imports a large PGN file using every processor.  The file is split in half at a game boundary, again and again,
+ * until the pieces are small, and the pieces are read in parallel on a fork-join pool.  Each worker thread replays
+ * its games on its own Board and adds them up in its own ImportStats, which are merged as the pieces finish.
+ * Run it on its own to import a file and print the totals: PgnImporter file.pgn [threads]
+ */
+public class PgnImporter {
+    
+    // Pieces of the file smaller than this are read by one task rather than split further.
+    private static final long MIN_SPLIT_BYTES = 4L << 20;
+    
+    // How much of the file is mapped at a time when looking for a game boundary.
+    private static final int SCAN_BYTES = 1 << 16;
+    
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Board> boards = ThreadLocal.withInitial(Board::new);
+    
+    /**
+     * Constructor.
+     * 
+     * @param threads The number of worker threads.
+     * @throws IllegalArgumentException if the thread count is less than 1.
+     */
+    public PgnImporter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        pool = new ForkJoinPool(threads);
+    }
+    
+    /**
+     * Imports a PGN file with one worker per processor and prints the totals.
+     * 
+     * @param args The PGN file, and optionally the number of threads.
+     * @throws IOException if the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: PgnImporter file.pgn [threads]");
+            return;
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PgnImporter importer = new PgnImporter(threads);
+        ImportStats stats;
+        try {
+            stats = importer.importFile(Paths.get(args[0]));
+        } finally {
+            importer.shutdown();
+        }
+        System.out.printf("%,d games, %,d moves, %,d errors in %,d ms with %d threads: %,.0f games/s%n",
+                stats.getGames(), stats.getMoves(), stats.getErrors(), stats.getElapsedMillis(), threads,
+                stats.getGamesPerSecond());
+        System.out.printf("%,d players, %,d openings%n", stats.getPlayers().size(), stats.getOpenings().size());
+        stats.getOpenings().entrySet().stream()
+                .sorted((a, b) -> Integer.compare(total(b.getValue()), total(a.getValue())))
+                .limit(10)
+                .forEach(PgnImporter::printOpening);
+    }
+    
+    /**
+     * Imports every game of a PGN file.
+     * 
+     * @param file The PGN file.
+     * @return The totals, including how long the import took.
+     * @throws IOException if the file cannot be read.
+     */
+    public ImportStats importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ImportStats stats = pool.invoke(new ImportTask(channel, 0, channel.size(), boards));
+            stats.setElapsedNanos(System.nanoTime() - start);
+            return stats;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    /**
+     * Finds the first game that starts at or after a position: a tag line that does not follow another tag line.
+     * 
+     * @param channel The PGN file.
+     * @param from The position to look from.  The line it is in is skipped, as it may be part way through.
+     * @param end The position to stop looking at.
+     * @return The position of the game's first tag, or end if there is none.
+     * @throws IOException if the file cannot be read.
+     */
+    static long nextGameStart(FileChannel channel, long from, long end) throws IOException {
+        boolean lineStart = false;
+        // Not known for the skipped line, so assumed, which at worst skips one game boundary
+        boolean afterTag = true;
+        for (long position = from; position < end; position += SCAN_BYTES) {
+            int length = (int) Math.min(SCAN_BYTES, end - position);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte c = buffer.get(i);
+                if (c == '\n') {
+                    lineStart = true;
+                } else if (lineStart && c != '\r') {
+                    lineStart = false;
+                    if (c == '[' && !afterTag) {
+                        return position + i;
+                    }
+                    // Blank lines are skipped above; any other line decides whether a tag line may start a game
+                    afterTag = c == '[';
+                }
+            }
+        }
+        return end;
+    }
+    
+    /**
+     * Gets the number of games counted in a set of results.
+     * 
+     * @param results {wins, losses, draws}.
+     * @return The total.
+     */
+    private static int total(int[] results) {
+        return results[ImportStats.WINS] + results[ImportStats.LOSSES] + results[ImportStats.DRAWS];
+    }
+    
+    /**
+     * Prints the results of an opening.
+     * 
+     * @param opening The opening and its results.
+     */
+    private static void printOpening(Map.Entry<String, int[]> opening) {
+        int[] results = opening.getValue();
+        System.out.printf("  %-30s %,8d games  +%d =%d -%d%n", opening.getKey(), total(results),
+                results[ImportStats.WINS], results[ImportStats.DRAWS], results[ImportStats.LOSSES]);
+    }
+    
+    /**
+     * Imports the games in part of the file, splitting it in two at a game boundary while it is large.
+     */
+    private static class ImportTask extends RecursiveTask<ImportStats> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final ThreadLocal<Board> boards; // The importer's boards, one per worker thread.
+        
+        /**
+         * Constructor.
+         * 
+         * @param channel The PGN file.
+         * @param start The position of the first game.
+         * @param end The position just after the last game.
+         * @param boards The importer's boards, one per worker thread.
+         */
+        ImportTask(FileChannel channel, long start, long end, ThreadLocal<Board> boards) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.boards = boards;
+        }
+        
+        /**
+         * Imports the games, splitting the work first if there is a lot of it.
+         * 
+         * @return The totals for this part of the file.
+         */
+        @Override
+        protected ImportStats compute() {
+            try {
+                if (end - start > MIN_SPLIT_BYTES) {
+                    long middle = nextGameStart(channel, start + (end - start) / 2, end);
+                    if (middle < end) {
+                        ImportTask first = new ImportTask(channel, start, middle, boards);
+                        first.fork();
+                        ImportStats second = new ImportTask(channel, middle, end, boards).compute();
+                        return second.merge(first.join());
+                    }
+                }
+                return read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        /**
+         * Reads every game in this part of the file on the worker thread's board.
+         * 
+         * @return The totals for these games.
+         * @throws IOException if the file cannot be read.
+         */
+        private ImportStats read() throws IOException {
+            ImportStats stats = new ImportStats();
+            try (PgnReader reader = new PgnReader(channel, start, end, boards.get())) {
+                while (true) {
+                    try {
+                        PgnGame game = reader.next();
+                        if (game == null) {
+                            break;
+                        }
+                        stats.add(game);
+                    } catch (IllegalArgumentException e) {
+                        stats.addError();
+                    }
+                }
+            }
+            return stats;
+        }
+    }
+}
\ No newline at end of file
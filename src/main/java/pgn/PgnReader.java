@@ -0,0 +1,395 @@
+package main.java.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import main.java.Board;
+import main.java.BoardState;
+import main.java.Move;
+import main.java.Position;
+
+/**
+ * Reads the games of a PGN file one at a time, so files of any size can be read without holding them in memory.
+ * The file is memory-mapped a window at a time and tokenized byte by byte as the games are read.
+ * Each game's moves are replayed on a Board through processMove, so illegal moves are caught,
+ * and the game is returned with its moves encoded as ints.
+ * Comments, variations, NAGs and escape lines are skipped.  Each reader should be used by one thread.
+ * A reader can also cover just part of a file, e.g. so several threads can read one file between them.
+ */
+public class PgnReader implements Closeable {
+    
+    // Size of the part of the file mapped at once.
+    private static final long WINDOW_BYTES = 64L << 20;
+    
+    private static final String[] RESULTS = {PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW, PgnGame.UNKNOWN};
+    
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int pushedBack = -1;
+    
+    private final Board board;
+    private final San san = new San();
+    private final StringBuilder token = new StringBuilder(32);
+    private byte[] bytes = new byte[64]; // Reused for tag values, which may be UTF-8.
+    private int[] moves = new int[256];
+    private long gamesRead;
+    
+    /**
+     * Constructor.  Opens a PGN file for reading.
+     * 
+     * @param file The PGN file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public PgnReader(Path file) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ), true, 0, -1, new Board());
+    }
+    
+    /**
+     * Constructor.  Reads the games in part of an open file.  Closing the reader leaves the file open.
+     * 
+     * @param channel The open PGN file.
+     * @param start The position of the first game in the file.
+     * @param end The position just after the last game to read.
+     * @param board The board to replay the games on.  Its position is replaced by each game.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public PgnReader(FileChannel channel, long start, long end, Board board) throws IOException {
+        this(channel, false, start, end, board);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param channel The open PGN file.
+     * @param ownsChannel true if closing the reader should close the file.
+     * @param start The position of the first game in the file.
+     * @param end The position just after the last game to read, or -1 for the end of the file.
+     * @param board The board to replay the games on.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private PgnReader(FileChannel channel, boolean ownsChannel, long start, long end, Board board) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.end = end < 0 ? channel.size() : end;
+        this.board = board;
+        map(start);
+        // Skips a UTF-8 byte order mark
+        if (start == 0 && this.end >= 3
+                && window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+            window.position(3);
+        }
+    }
+    
+    /**
+     * Reads the next game.
+     * If a game has an illegal or unreadable move, the rest of it is skipped and an exception is thrown;
+     * calling next again carries on with the following game.
+     * 
+     * @return The game, or null at the end of the file.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the game has an invalid FEN tag or an illegal move.
+     */
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int moveCount = 0;
+        boolean inGame = false;
+        boolean replaying = false;
+        String error = null;
+        
+        int c;
+        while ((c = skipWhitespace()) >= 0) {
+            if (c == '[') {
+                if (replaying) {
+                    // A tag after the moves starts the next game, so this one had no result
+                    pushedBack = c;
+                    break;
+                }
+                readTag(tags);
+                inGame = true;
+                continue;
+            }
+            if (c == '{') {
+                skipPast('}');
+                continue;
+            }
+            if (c == ';' || c == '%') {
+                skipPast('\n');
+                continue;
+            }
+            if (c == '(') {
+                skipVariation();
+                continue;
+            }
+            if (c == ')') {
+                continue;
+            }
+            
+            readToken(c);
+            inGame = true;
+            if (c == '$') {
+                continue;
+            }
+            String result = result(token);
+            if (result != null) {
+                return finish(tags, moveCount, result, error);
+            }
+            if (!replaying) {
+                replaying = true;
+                try {
+                    board.setPosition(tags.getOrDefault("FEN", BoardState.STARTING_FEN));
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                continue;
+            }
+            // Move numbers such as "12." or "12..." may be written on their own or joined to the move
+            int start = 0;
+            while (start < token.length() && (Character.isDigit(token.charAt(start)) || token.charAt(start) == '.')) {
+                start++;
+            }
+            if (start == token.length()) {
+                continue;
+            }
+            if (start > 0) {
+                token.delete(0, start);
+            }
+            int move = san.parse(board, token);
+            if (move == Move.NONE || !play(move)) {
+                error = "Illegal move " + token + " after " + moveCount + " moves";
+                continue;
+            }
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+            }
+            moves[moveCount++] = move;
+        }
+        return inGame ? finish(tags, moveCount, PgnGame.UNKNOWN, error) : null;
+    }
+    
+    /**
+     * Gets the number of games read so far, including any that had errors.
+     * 
+     * @return The number of games.
+     */
+    public long getGamesRead() {
+        return gamesRead;
+    }
+    
+    /**
+     * Closes the file, if the reader opened it.
+     * 
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Plays a move on the replay board through processMove, then hands the turn to the other player.
+     * 
+     * @param move The encoded move.
+     * @return true if the board accepted the move.
+     */
+    private boolean play(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int promotionType = Move.isPromotion(move) ? Move.promotionType(move) : BoardState.QUEEN;
+        if (!board.processMove(Position.of(from), Position.of(to), promotionType)) {
+            return false;
+        }
+        board.switchPlayer();
+        return true;
+    }
+    
+    /**
+     * Builds the game once its result has been read.
+     * 
+     * @param tags The tag pairs.
+     * @param moveCount The number of moves read.
+     * @param result The result from the movetext.
+     * @param error The reason the game could not be read, or null.
+     * @return The game.
+     * @throws IllegalArgumentException if the game could not be read.
+     */
+    private PgnGame finish(Map<String, String> tags, int moveCount, String result, String error) {
+        gamesRead++;
+        if (error != null) {
+            throw new IllegalArgumentException("Game " + gamesRead + ": " + error);
+        }
+        return new PgnGame(tags, Arrays.copyOf(moves, moveCount), result);
+    }
+    
+    /**
+     * Reads a tag pair such as [White "Carlsen, Magnus"], after its opening bracket.
+     * 
+     * @param tags The map to add the tag to.
+     * @throws IOException if the file cannot be read.
+     */
+    private void readTag(Map<String, String> tags) throws IOException {
+        int c = skipWhitespace();
+        token.setLength(0);
+        while (c >= 0 && c != '"' && c != ']' && !isWhitespace(c)) {
+            token.append((char) c);
+            c = read();
+        }
+        while (c >= 0 && c != '"' && c != ']') {
+            c = read();
+        }
+        int length = 0;
+        if (c == '"') {
+            while ((c = read()) >= 0 && c != '"') {
+                if (c == '\\' && (c = read()) < 0) {
+                    break;
+                }
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, length * 2);
+                }
+                bytes[length++] = (byte) c;
+            }
+            skipPast(']');
+        }
+        if (token.length() > 0) {
+            tags.put(token.toString(), new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * Reads a movetext token, e.g. a move, a move number or a result, into the token buffer.
+     * 
+     * @param first The first character of the token.
+     * @throws IOException if the file cannot be read.
+     */
+    private void readToken(int first) throws IOException {
+        token.setLength(0);
+        int c = first;
+        do {
+            token.append((char) c);
+            c = read();
+        } while (c >= 0 && !isWhitespace(c) && "{}()[];".indexOf(c) < 0);
+        if (c >= 0 && !isWhitespace(c)) {
+            pushedBack = c;
+        }
+    }
+    
+    /**
+     * Gets the game result a token stands for.
+     * 
+     * @param text The token.
+     * @return The result, or null if the token is not a result.
+     */
+    private static String result(CharSequence text) {
+        for (String result : RESULTS) {
+            if (result.contentEquals(text)) {
+                return result;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Skips a variation, after its opening parenthesis, including any variations and comments inside it.
+     * 
+     * @throws IOException if the file cannot be read.
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            }
+        }
+    }
+    
+    /**
+     * Skips up to and including a character.
+     * 
+     * @param stop The character to stop after.
+     * @throws IOException if the file cannot be read.
+     */
+    private void skipPast(int stop) throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && c != stop);
+    }
+    
+    /**
+     * Skips whitespace.
+     * 
+     * @return The first character that is not whitespace, or -1 at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c >= 0 && isWhitespace(c));
+        return c;
+    }
+    
+    /**
+     * Checks if a character is whitespace.
+     * 
+     * @param c The character.
+     * @return true for spaces, tabs, line breaks and other control characters.
+     */
+    private static boolean isWhitespace(int c) {
+        return c <= ' ';
+    }
+    
+    /**
+     * Reads the next byte of the file, mapping the next window when the current one runs out.
+     * 
+     * @return The byte, 0 to 255, or -1 at the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private int read() throws IOException {
+        if (pushedBack >= 0) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (!window.hasRemaining()) {
+            long next = windowStart + window.limit();
+            if (next >= end) {
+                return -1;
+            }
+            map(next);
+        }
+        return window.get() & 0xFF;
+    }
+    
+    /**
+     * Maps the window of the file starting at a position.
+     * 
+     * @param start The position in the file.
+     * @throws IOException if the file cannot be mapped.
+     */
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, end - start));
+    }
+}
\ No newline at end of file
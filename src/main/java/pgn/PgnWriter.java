@@ -0,0 +1,157 @@
+package main.java.pgn;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import main.java.Board;
+import main.java.BoardState;
+
+/**
+ * Writes games in PGN, in the export format: the seven standard tags first, then any others,
+ * then the moves in SAN with move numbers, in lines of at most 80 characters.
+ * Each writer should be used by one thread.
+ */
+public class PgnWriter implements Closeable, Flushable {
+    
+    // Tags every PGN game has, in the order they must be written.  Missing ones are written as "?".
+    private static final String[] SEVEN_TAG_ROSTER = {"Event", "Site", "Date", "Round", "White", "Black", "Result"};
+    
+    private static final int LINE_LENGTH = 80;
+    
+    private final Writer out;
+    private final Board board = new Board();
+    private final San san = new San();
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+    
+    /**
+     * Constructor.  Writes to a file, adding to the end of it if it already exists.
+     * 
+     * @param file The PGN file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public PgnWriter(Path file) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param out Where to write the games.
+     */
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+    
+    /**
+     * Writes a game.
+     * 
+     * @param game The game.  Its moves must be legal one after the other from its starting position.
+     * @throws IOException if the game cannot be written.
+     * @throws IllegalArgumentException if the game's FEN tag is not valid.
+     */
+    public void write(PgnGame game) throws IOException {
+        Map<String, String> tags = game.getTags();
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = name.equals("Result") ? game.getResult() : tags.getOrDefault(name, "?");
+            writeTag(name, value);
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRosterTag(tag.getKey())) {
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        out.write('\n');
+        
+        board.setPosition(game.getStartFen());
+        BoardState state = board.getState();
+        line.setLength(0);
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            int move = game.getMove(i);
+            if (state.getSideToMove() == BoardState.WHITE) {
+                append(state.getFullmoveNumber() + ".");
+            } else if (i == 0) {
+                append(state.getFullmoveNumber() + "...");
+            }
+            append(san.format(board, move));
+            board.makeMove(move);
+            board.switchPlayer();
+        }
+        append(game.getResult());
+        out.write(line.toString());
+        out.write("\n\n");
+    }
+    
+    /**
+     * Flushes the games written so far to the file.
+     * 
+     * @throws IOException if they cannot be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * Closes the file.
+     * 
+     * @throws IOException if it cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Adds a token to the movetext, starting a new line first if it would not fit.
+     * 
+     * @param text The token.
+     * @throws IOException if a finished line cannot be written.
+     */
+    private void append(String text) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + text.length() > LINE_LENGTH) {
+            out.write(line.toString());
+            out.write('\n');
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(text);
+    }
+    
+    /**
+     * Writes a tag pair, escaping quotes and backslashes in its value.
+     * 
+     * @param name The tag name.
+     * @param value The tag value.
+     * @throws IOException if the tag cannot be written.
+     */
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        out.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\"]\n");
+    }
+    
+    /**
+     * Checks if a tag is one of the seven standard tags, which are written first.
+     * 
+     * @param name The tag name.
+     * @return true if it is a standard tag.
+     */
+    private static boolean isRosterTag(String name) {
+        for (String rosterTag : SEVEN_TAG_ROSTER) {
+            if (rosterTag.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
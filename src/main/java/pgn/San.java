@@ -0,0 +1,214 @@
+package main.java.pgn;
+
+import main.java.Board;
+import main.java.BoardState;
+import main.java.Move;
+import main.java.MoveGenerator;
+
+/**
+ * Converts moves to and from Standard Algebraic Notation (SAN), e.g. "Nbd2", "exd6", "O-O" or "e8=Q+".
+ * A SAN move only names the piece and where it goes, so it is matched against the moves of the position.
+ * Only the moves that match are checked for leaving the King in check, which saves checking every move.
+ * Each instance reuses its own move buffers, so it should be used by one thread.
+ */
+public class San {
+    
+    private static final String PIECE_LETTERS = "PNBRQK";
+    
+    private final MoveGenerator generator = new MoveGenerator();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] replies = new int[MoveGenerator.MAX_MOVES];
+    
+    /**
+     * Finds the legal move of the current player written in SAN.
+     * Check and mate signs and annotations such as "!?" are ignored, as is a missing "=" before the promotion piece.
+     * 
+     * @param board The board.  It is not changed.
+     * @param san The move in SAN.
+     * @return The encoded move, or Move.NONE if it is not a legal move or is ambiguous.
+     */
+    public int parse(Board board, CharSequence san) {
+        BoardState state = board.getState();
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end < 2) {
+            return Move.NONE;
+        }
+        int count = generator.generatePseudoLegalMoves(state, moves);
+        
+        char first = san.charAt(0);
+        if (first == 'O' || first == '0') {
+            // "O-O" is three characters long, "O-O-O" five
+            int flag = end >= 5 ? Move.QUEEN_CASTLE : Move.KING_CASTLE;
+            return find(state, count, flag);
+        }
+        
+        int type = BoardState.PAWN;
+        int start = 0;
+        if (PIECE_LETTERS.indexOf(first) > 0) {
+            type = PIECE_LETTERS.indexOf(first);
+            start = 1;
+        }
+        int promotionType = BoardState.NO_PIECE;
+        if (type == BoardState.PAWN && PIECE_LETTERS.indexOf(san.charAt(end - 1)) > 0) {
+            promotionType = PIECE_LETTERS.indexOf(san.charAt(end - 1));
+            end--;
+            if (san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int to = square(san.charAt(end - 2), san.charAt(end - 1));
+        if (to == BoardState.NO_SQUARE) {
+            return Move.NONE;
+        }
+        
+        // Anything between the piece and the ending square narrows down where it comes from
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = '8' - c;
+            } else if (c != 'x' && c != '-' && c != ':') {
+                return Move.NONE;
+            }
+        }
+        
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || BoardState.typeOf(state.pieceAt(from)) != type
+                    || (fromColumn >= 0 && (from & 7) != fromColumn) || (fromRow >= 0 && (from >>> 3) != fromRow)) {
+                continue;
+            }
+            if (Move.isPromotion(move)
+                    && Move.promotionType(move) != (promotionType == BoardState.NO_PIECE ? BoardState.QUEEN : promotionType)) {
+                continue;
+            }
+            // A piece that is pinned is not counted, as SAN leaves out what could not move anyway
+            if (!generator.leavesKingSafe(state, move)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+    
+    /**
+     * Writes a legal move of the current player in SAN, with "+" or "#" if it gives check or mate.
+     * 
+     * @param board The board.  It is not changed.
+     * @param move The encoded move.
+     * @return The move in SAN.
+     */
+    public String format(Board board, int move) {
+        BoardState state = board.getState();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        StringBuilder san = new StringBuilder(8);
+        
+        if (Move.isCastle(move)) {
+            san.append(Move.flags(move) == Move.KING_CASTLE ? "O-O" : "O-O-O");
+        } else {
+            int type = BoardState.typeOf(state.pieceAt(from));
+            if (type == BoardState.PAWN) {
+                if (Move.isCapture(move)) {
+                    san.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                san.append(PIECE_LETTERS.charAt(type));
+                appendDisambiguation(san, state, move, type);
+            }
+            if (Move.isCapture(move)) {
+                san.append('x');
+            }
+            san.append(Move.squareName(to));
+            if (Move.isPromotion(move)) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotionType(move)));
+            }
+        }
+        
+        // Plays the move to see if it checks or mates
+        state.makeMove(move);
+        state.switchSide();
+        if (state.isInCheck(state.getSideToMove())) {
+            san.append(generator.generateLegalMoves(state, replies) == 0 ? '#' : '+');
+        }
+        state.switchSide();
+        state.unmakeMove();
+        return san.toString();
+    }
+    
+    /**
+     * Adds the column, row or both of the starting square when another piece of the same type could go to the same square.
+     * 
+     * @param san The SAN being built.
+     * @param state The position.
+     * @param move The encoded move.
+     * @param type The type of the moving piece.
+     */
+    private void appendDisambiguation(StringBuilder san, BoardState state, int move, int type) {
+        int from = Move.from(move);
+        boolean ambiguous = false;
+        boolean sameColumn = false;
+        boolean sameRow = false;
+        int count = generator.generatePseudoLegalMoves(state, moves);
+        for (int i = 0; i < count; i++) {
+            int other = Move.from(moves[i]);
+            if (other != from && Move.to(moves[i]) == Move.to(move) && BoardState.typeOf(state.pieceAt(other)) == type
+                    && generator.leavesKingSafe(state, moves[i])) {
+                ambiguous = true;
+                sameColumn |= (other & 7) == (from & 7);
+                sameRow |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if (ambiguous && (!sameColumn || sameRow)) {
+            san.append((char) ('a' + (from & 7)));
+        }
+        if (sameColumn) {
+            san.append((char) ('8' - (from >>> 3)));
+        }
+    }
+    
+    /**
+     * Finds the legal move with the given flags, e.g. castling.
+     * 
+     * @param state The position.
+     * @param count The number of pseudo-legal moves in the buffer.
+     * @param flags The move flags.
+     * @return The encoded move, or Move.NONE if there is none.
+     */
+    private int find(BoardState state, int count, int flags) {
+        for (int i = 0; i < count; i++) {
+            if (Move.flags(moves[i]) == flags) {
+                return generator.leavesKingSafe(state, moves[i]) ? moves[i] : Move.NONE;
+            }
+        }
+        return Move.NONE;
+    }
+    
+    /**
+     * Gets the square named by a column letter and a row digit, e.g. 'e' and '4'.
+     * 
+     * @param file The column letter, 'a' to 'h'.
+     * @param rank The row digit, '1' to '8'.
+     * @return The square index, or NO_SQUARE if the name is not valid.
+     */
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return BoardState.NO_SQUARE;
+        }
+        return (file - 'a') + 8 * ('8' - rank);
+    }
+}
\ No newline at end of file
@@ -1,9 +1,10 @@
 package main.java.pieces;
 
-import java.util.ArrayList;
 import java.util.List;
 import javafx.scene.image.Image;
+import main.java.Attacks;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.Piece;
 import main.java.Position;
 import main.java.Tile;
@@ -13,16 +14,37 @@ import main.java.Tile;
  * Can move diagonally any number of squares.
  */
 public class Bishop extends Piece {
-    private static final int SIZE = 8;
+    
+    // The only two Bishops, White's and Black's, shared by every board.
+    private static final Bishop[] INSTANCES = {new Bishop(Player.WHITE), new Bishop(Player.BLACK)};
     
     /**
-     * Constructor.  Gives a specific color and position to the Bishop.
+     * Constructor.  Gives the Bishop a color.  Use of to get one of the shared instances.
      * 
-     * @param color The color of the bishop (WHITE/BLACK)
-     * @param position The position of the Bishop.
+     * @param color The color of the Bishop. (WHITE/BLACK)
      */
-    public Bishop(Player color, Position position) {
-        super(color, position);
+    private Bishop(Player color) {
+        super(color);
+    }
+    
+    /**
+     * Gets the Bishop of a color.  Bishops hold no position, so one instance per color serves every square and board.
+     * 
+     * @param color The color of the Bishop.
+     * @return The shared Bishop.
+     */
+    public static Bishop of(Player color) {
+        return INSTANCES[color.ordinal()];
+    }
+    
+    /**
+     * Gets the BoardState piece type of the Bishop.
+     * 
+     * @return BoardState.BISHOP.
+     */
+    @Override
+    public int getType() {
+        return BoardState.BISHOP;
     }
     
     /**
@@ -40,83 +62,22 @@ public class Bishop extends Piece {
             return false;
         }
         
-        int xStart = startTile.getX();
-        int yStart = startTile.getY();
-        int xEnd = endTile.getX();
-        int yEnd = endTile.getY();
-        
-        // Check if the move is a valid diagonal move
-        if (Math.abs(xStart - xEnd) == Math.abs(yStart - yEnd)) {
-            // Checks if path is clear
-            if (isPathClear(board, xStart, yStart, xEnd, yEnd)) {
-                // System.out.println("Bishop move check passed."); // Debugging statement
-                return true;
-            }
-        }
-        return false;
+        int start = startTile.getX() * 8 + startTile.getY();
+        int end = endTile.getX() * 8 + endTile.getY();
+        // One lookup in the magic attack tables checks both the direction and that the path is clear
+        return (Attacks.bishopAttacks(start, board.getState().getAllPieces()) & (1L << end)) != 0;
     }
     
     /**
      * Generates a list of potential moves.
      * 
+     * @param position The square the Bishop stands on.
      * @return A list of potential moves that the Bishop may move to.
      */
     @Override
-    public List<Position> getPotentialMoves() {
-        List<Position> moves = new ArrayList<>();
-        int currentRow = this.getPosition().getRow();
-        int currentColumn = this.getPosition().getColumn();
-        
-        int[][] directions = {
-            {-1, -1}, {-1, 1},
-            {1, -1}, {1, 1}
-        };
-        
-        for (int[] direction : directions) {
-            int nextRow = currentRow;
-            int nextColumn = currentColumn;
-            
-            while (true) {
-                nextRow += direction[0];
-                nextColumn += direction[1];
-                
-                // Check if position is within board limits
-                if (nextRow >= 0 && nextRow < SIZE && nextColumn >= 0 && nextColumn < SIZE) {
-                    moves.add(new Position(nextRow, nextColumn));
-                } else {
-                    break;
-                }
-            }
-        }
-        return moves;
-    }
-    
-    /**
-     * Checks if the path between the start and end positions is clear and available for movement.
-     * Goes one-by-one, checking if each tile is clear.
-     * 
-     * @param board The current board state.
-     * @param xStart The x-coordinate of the start position.
-     * @param yStart The y-coordinate of the start position.
-     * @param xEnd The x-coordinate of the end position.
-     * @param yEnd The y-coordinate of the end position.
-     * @return true if the path is clear.
-     */
-    private boolean isPathClear(Board board, int xStart, int yStart, int xEnd, int yEnd) {
-        int xDirection = Integer.compare(xEnd, xStart);
-        int yDirection = Integer.compare(yEnd, yStart);
-        
-        int x = xStart + xDirection;
-        int y = yStart + yDirection;
-        
-        while (x != xEnd && y != yEnd) {
-            if (board.getTile(x, y).isOccupied()) {
-                return false;
-            }
-            x += xDirection;
-            y += yDirection;
-        }
-        return true;
+    public List<Position> getPotentialMoves(Position position) {
+        // The squares the Bishop attacks on an empty board
+        return toPositions(Attacks.bishopAttacks(position.getSquare(), 0L));
     }
     
     /**
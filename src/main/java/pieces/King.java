@@ -1,11 +1,14 @@
 package main.java.pieces;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javafx.scene.image.Image;
 import main.java.Tile;
 import main.java.Piece;
+import main.java.Attacks;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.Position;
 
 /**
@@ -15,19 +18,45 @@ import main.java.Position;
  */
 public class King extends Piece {
     
-    // Storing whether the King has moved or not as it relates to Castling. (If the King or the Rook has moved, then Castling is no longer available.)
-    // This is set in Board.java when calculating a move.
-    private boolean hasMoved;
-    private static final int SIZE = 8;
+    // The squares a King can reach from each square, listed once for every call of getPotentialMoves.
+    private static final List<List<Position>> POTENTIAL_MOVES = new ArrayList<>(64);
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            POTENTIAL_MOVES.add(Collections.unmodifiableList(toPositions(Attacks.kingAttacks(square))));
+        }
+    }
+    
+    // The only two Kings, White's and Black's, shared by every board.
+    private static final King[] INSTANCES = {new King(Player.WHITE), new King(Player.BLACK)};
+    
+    /**
+     * Constructor.  Gives the King a color.  Use of to get one of the shared instances.
+     * 
+     * @param color The color of the King. (WHITE/BLACK)
+     */
+    private King(Player color) {
+        super(color);
+    }
+    
+    /**
+     * Gets the King of a color.  Kings hold no position, so one instance per color serves every square and board.
+     * 
+     * @param color The color of the King.
+     * @return The shared King.
+     */
+    public static King of(Player color) {
+        return INSTANCES[color.ordinal()];
+    }
     
     /**
-     * Constructor.  Gives the King a color and position.
-     * @param color The color of the king. (WHITE/BLACK)
-     * @param position The position of the King.
+     * Gets the BoardState piece type of the King.
+     * 
+     * @return BoardState.KING.
      */
-    public King(Player color, Position position) {
-        super(color, position);
-        this.hasMoved = false;
+    @Override
+    public int getType() {
+        return BoardState.KING;
     }
     
     /**
@@ -42,88 +71,29 @@ public class King extends Piece {
     @Override
     public boolean isValidMove(Board board, Tile startTile, Tile endTile) {
         if (isOccupiedBySameColor(endTile)) {
-            System.out.println("Move invalid: End tile is occupied by same color."); // Debugging statement
             return false;
         }
         
-        int xStart = startTile.getX();
-        int yStart = startTile.getY();
-        int xEnd = endTile.getX();
-        int yEnd = endTile.getY();
+        int start = startTile.getX() * 8 + startTile.getY();
+        int end = endTile.getX() * 8 + endTile.getY();
         
-        // Allows for movement by one square in any direction.
-        if (Math.abs(xStart - xEnd) <= 1 && Math.abs(yStart - yEnd) <= 1) {
-            System.out.println("King basic move check passed."); // Debugging statement
-            
-            // Simulates piece movement to prevent moving into check
-            Piece capturedPiece = endTile.getPiece();
-            endTile.occupyTile(this);
-            startTile.releaseTile();
-            boolean isInCheck = board.isPositionUnderAttack(new Position(xEnd, yEnd), this.getColor());
-            
-            // Undoes the move
-            startTile.occupyTile(this);
-            endTile.occupyTile(capturedPiece);
-            
-            System.out.println("Is in check after in move? " + isInCheck);
-            return !isInCheck;
+        // Allows for movement by one square in any direction, as listed in the King attack table.
+        // The destination is checked against the bitboard attack maps, with the King lifted off its start square.
+        if ((Attacks.kingAttacks(start) & (1L << end)) != 0) {
+            return !board.isPositionUnderAttack(Position.of(end), this.getColor());
         }
-        
-        if (board.isKingInCheck(this.getColor())) {
-            // Simulates the move and checks if the King is still in check
-            Piece tempPiece = endTile.getPiece();
-            endTile.occupyTile(this);
-            startTile.releaseTile();
-            
-            boolean stillInCheck = board.isKingInCheck(this.getColor());
-            
-            // Undoes the move
-            startTile.occupyTile(this);
-            endTile.occupyTile(tempPiece);
-            
-            return !stillInCheck;
-        }
-        System.out.println("Move invalid: King can only move one square in any direction.");  // Debugging statement.
         return false;
     }
     
     /**
      * Generates a list of potential moves for the King.
      * 
-     * @return A list of potential positions the King may move to.
+     * @param position The square the King stands on.
+     * @return An unmodifiable list of potential positions the King may move to, made once per square.
      */
     @Override
-    public List<Position> getPotentialMoves() {
-        List<Position> moves = new ArrayList<>();
-        int[][] directions = {
-            {-1, -1}, {-1, 0}, {-1, 1},
-            {0, -1}, {0, 1},
-            {1, -1}, {1, 0}, {1, 1}
-        };
-        
-        int currentRow = this.getPosition().getRow();
-        int currentColumn = this.getPosition().getColumn();
-        
-        for (int[] direction : directions) {
-            int nextRow = currentRow + direction[0];
-            int nextColumn = currentColumn + direction[1];
-            
-            // Checks to see if position is within board limits
-            if (nextRow >= 0 && nextRow < SIZE && nextColumn >= 0 && nextColumn < SIZE) {
-                moves.add(new Position(nextRow, nextColumn));
-            }
-        }
-        return moves;
-    }
-    
-    /**
-     * Sets hasMoved flag for the King.
-     * Important for castling.
-     * 
-     * @param hasMoved  The state of the hasMoved flag.
-     */
-    public void setHasMoved(boolean hasMoved) {
-        this.hasMoved = hasMoved;
+    public List<Position> getPotentialMoves(Position position) {
+        return POTENTIAL_MOVES.get(position.getSquare());
     }
     
     /**
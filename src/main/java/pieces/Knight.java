@@ -1,11 +1,14 @@
 package main.java.pieces;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javafx.scene.image.Image;
 import main.java.Tile;
 import main.java.Piece;
+import main.java.Attacks;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.Position;
 
 /**
@@ -14,16 +17,45 @@ import main.java.Position;
  */
 public class Knight extends Piece {
     
-    private static final int SIZE = 8;
+    // The squares a Knight can reach from each square, listed once for every call of getPotentialMoves.
+    private static final List<List<Position>> POTENTIAL_MOVES = new ArrayList<>(64);
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            POTENTIAL_MOVES.add(Collections.unmodifiableList(toPositions(Attacks.knightAttacks(square))));
+        }
+    }
+    
+    // The only two Knights, White's and Black's, shared by every board.
+    private static final Knight[] INSTANCES = {new Knight(Player.WHITE), new Knight(Player.BLACK)};
     
     /**
-     * Constructor.  Gives Knight color and position.
+     * Constructor.  Gives the Knight a color.  Use of to get one of the shared instances.
      * 
      * @param color The color of the Knight. (WHITE/BLACK)
-     * @param position The position of the Knight.
      */
-    public Knight(Player color, Position position){
-        super(color, position);
+    private Knight(Player color) {
+        super(color);
+    }
+    
+    /**
+     * Gets the Knight of a color.  Knights hold no position, so one instance per color serves every square and board.
+     * 
+     * @param color The color of the Knight.
+     * @return The shared Knight.
+     */
+    public static Knight of(Player color) {
+        return INSTANCES[color.ordinal()];
+    }
+    
+    /**
+     * Gets the BoardState piece type of the Knight.
+     * 
+     * @return BoardState.KNIGHT.
+     */
+    @Override
+    public int getType() {
+        return BoardState.KNIGHT;
     }
     
     /**
@@ -41,46 +73,21 @@ public class Knight extends Piece {
             return false;
         }
         
-        int xStart = startTile.getX();
-        int yStart = startTile.getY();
-        int xEnd = endTile.getX();
-        int yEnd = endTile.getY();
-        
-        //Allows movement by 2 units in horizontal direction and 1 unit in vertical direction
-        //Or movement by 1 unit in horizontal direction and 2 units in vertical direction
-        if (Math.abs(xStart - xEnd) == 2 && Math.abs(yStart - yEnd) == 1){
-            return true;
-        } else if (Math.abs(xStart - xEnd) == 1 && Math.abs(yStart - yEnd) == 2){
-            return true;
-        }
-        return false;
+        int start = startTile.getX() * 8 + startTile.getY();
+        int end = endTile.getX() * 8 + endTile.getY();
+        // Allows the L-shaped jumps listed in the Knight attack table
+        return (Attacks.knightAttacks(start) & (1L << end)) != 0;
     }
     
     /**
      * Generates a list of potential moves.
      * 
-     * @return List opf potential positions the Knight may move to.
+     * @param position The square the Knight stands on.
+     * @return An unmodifiable list of potential positions the Knight may move to, made once per square.
      */
     @Override
-    public List<Position> getPotentialMoves() {
-        List<Position> moves = new ArrayList<>();
-        int[][] directions = {
-            {-2, 1}, {-2, -1}, {2, -1}, {2, 1},
-            {1, -2}, {-1, -2}, {1, 2}, {-1, 2}
-        };
-        
-        int currentRow = this.getPosition().getRow();
-        int currentColumn = this.getPosition().getColumn();
-        
-        for (int[] direction : directions) {
-            int nextRow = currentRow + direction[0];
-            int nextColumn = currentColumn + direction[1];
-            
-            if (nextRow >= 0 && nextRow < SIZE && nextColumn >= 0 && nextColumn < SIZE) {
-                moves.add(new Position(nextRow, nextColumn));
-            }
-        }
-        return moves;
+    public List<Position> getPotentialMoves(Position position) {
+        return POTENTIAL_MOVES.get(position.getSquare());
     }
     
     /**
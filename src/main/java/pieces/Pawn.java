@@ -5,7 +5,9 @@ import java.util.List;
 import javafx.scene.image.Image;
 import main.java.Tile;
 import main.java.Piece;
+import main.java.Attacks;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.Position;
 
 /**
@@ -14,22 +16,42 @@ import main.java.Position;
  * Additionally, they may capture via En Passant, but I didn't have enough time to implement this.
  */
 public class Pawn extends Piece {
-    private boolean hasMoved;
+    
+    // The only two Pawns, White's and Black's, shared by every board.
+    private static final Pawn[] INSTANCES = {new Pawn(Player.WHITE), new Pawn(Player.BLACK)};
     
     /**
-     * Constructor.  Creates Pawn with color and position.
+     * Constructor.  Gives the Pawn a color.  Use of to get one of the shared instances.
      * 
      * @param color The color of the Pawn. (WHITE/BLACK)
-     * @param position The position of the Pawn.
      */
-    public Pawn(Player color, Position position){
-        super(color, position);
-        this.hasMoved = false;
+    private Pawn(Player color) {
+        super(color);
+    }
+    
+    /**
+     * Gets the Pawn of a color.  Pawns hold no position, so one instance per color serves every square and board.
+     * 
+     * @param color The color of the Pawn.
+     * @return The shared Pawn.
+     */
+    public static Pawn of(Player color) {
+        return INSTANCES[color.ordinal()];
+    }
+    
+    /**
+     * Gets the BoardState piece type of the Pawn.
+     * 
+     * @return BoardState.PAWN.
+     */
+    @Override
+    public int getType() {
+        return BoardState.PAWN;
     }
     
     /**
      * Checks if a move is valid.
-     * Pawns move forward one square, capture diagonally.  May move forward two squares from their starting position.
+     * Pawns move forward one square, capture diagonally.  May move forward two squares from their starting row.
      * 
      * @param board Current board state.
      * @param startTile Starting tile of the move.
@@ -42,61 +64,51 @@ public class Pawn extends Piece {
             return false;
         }
         
-        int startRow = startTile.getX();
-        int startColumn = startTile.getY();
-        int endRow = endTile.getX();
-        int endColumn = endTile.getY();
-        
-        // If White, returns a 1 to multiply against the values.  If black, changes the values to negative so they move in the opposite direction.
-        int direction = this.getColor() == Player.WHITE ? -1 : 1;
+        int start = startTile.getX() * 8 + startTile.getY();
+        int end = endTile.getX() * 8 + endTile.getY();
         
+        // Capture move, looked up in the Pawn attack table for the Pawn's color
+        if ((Attacks.pawnAttacks(this.getColor().ordinal(), start) & (1L << end)) != 0) {
+            return endTile.isOccupied();
+        }
         
-        // Normal move
-        if (startColumn == endColumn && board.getTile(endRow, endColumn).getPiece() == null) {
-            if (startRow + direction == endRow) {
+        // Normal move.  A row forward is 8 squares along: back towards square 0 for White, on for Black.
+        int forward = this.getColor() == Player.WHITE ? -8 : 8;
+        if (!endTile.isOccupied()) {
+            if (end == start + forward) {
                 return true;
             }
-            if (!hasMoved && startRow + (2 * direction) == endRow) {
+            if (startTile.getX() == startingRow() && end == start + 2 * forward) {
                 // Check if the path is clear for a two-square move
-                return board.getTile(startRow + direction, startColumn).getPiece() == null;
+                return !board.getTile((start + forward) >>> 3, start & 7).isOccupied();
             }
         }
-        
-        // Capture move
-        if (Math.abs(startColumn - endColumn) == 1 && startRow + direction == endRow) {
-            return board.getTile(endRow, endColumn).getPiece() != null;
-        }
-        
         return false;
     }
     
     /**
      * Generates a list of potential moves.
      * 
+     * @param position The square the Pawn stands on.
      * @return A list of potential positions the Pawn may move to.
      */
     @Override
-    public List<Position> getPotentialMoves() {
+    public List<Position> getPotentialMoves(Position position) {
         List<Position> moves = new ArrayList<>();
-        int row = this.getPosition().getRow();
-        int column = this.getPosition().getColumn();
+        int row = position.getRow();
+        int column = position.getColumn();
         int direction = this.getColor() == Player.WHITE ? -1 : 1;
         
         // Forward move
         if (isMoveWithinBoard(row + direction, column)) {
-            moves.add(new Position(row + direction, column));
-            if (!hasMoved && isMoveWithinBoard(row + (2 * direction), column)) {
-                moves.add(new Position(row + (2 * direction), column));
+            moves.add(Position.of(row + direction, column));
+            if (row == startingRow()) {
+                moves.add(Position.of(row + (2 * direction), column));
             }
         }
         
         // Capture moves
-        if (isMoveWithinBoard(row + direction, column + 1)) {
-            moves.add(new Position(row + direction, column + 1));
-        }
-        if (isMoveWithinBoard(row + direction, column - 1)) {
-            moves.add(new Position(row + direction, column - 1));
-        }
+        moves.addAll(toPositions(Attacks.pawnAttacks(this.getColor().ordinal(), position.getSquare())));
         
         return moves;
     }
@@ -114,13 +126,13 @@ public class Pawn extends Piece {
     }
     
     /**
-     * Sets the flag indicating whether the Pawn has moved.
-     * Helps to determine if the Pawn may move two squares.
+     * Gets the row the Pawns of this color start on.  Only from there may a Pawn move two squares,
+     * since a Pawn that has moved can never return to it.
      * 
-     * @param hasMoved true if the Pawn has moved.
+     * @return 6 for White, 1 for Black.
      */
-    public void setHasMoved(boolean hasMoved) {
-        this.hasMoved = hasMoved;
+    private int startingRow() {
+        return this.getColor() == Player.WHITE ? 6 : 1;
     }
     
     /**
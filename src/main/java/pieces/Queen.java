@@ -1,9 +1,10 @@
 package main.java.pieces;
 
-import java.util.ArrayList;
 import java.util.List;
 import javafx.scene.image.Image;
+import main.java.Attacks;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.Piece;
 import main.java.Position;
 import main.java.Tile;
@@ -13,15 +14,37 @@ import main.java.Tile;
  * Similar movement characteristics to Rook and Bishop combined.
  */
 public class Queen extends Piece {
-    private static final int SIZE = 8;
+    
+    // The only two Queens, White's and Black's, shared by every board.
+    private static final Queen[] INSTANCES = {new Queen(Player.WHITE), new Queen(Player.BLACK)};
     
     /**
-     * Constructor.  Creates a Queen with color and position.
+     * Constructor.  Gives the Queen a color.  Use of to get one of the shared instances.
+     * 
      * @param color The color of the Queen. (WHITE/BLACK)
-     * @param position The position of the Queen.
      */
-    public Queen(Piece.Player color, Position position) {
-        super(color, position);
+    private Queen(Player color) {
+        super(color);
+    }
+    
+    /**
+     * Gets the Queen of a color.  Queens hold no position, so one instance per color serves every square and board.
+     * 
+     * @param color The color of the Queen.
+     * @return The shared Queen.
+     */
+    public static Queen of(Player color) {
+        return INSTANCES[color.ordinal()];
+    }
+    
+    /**
+     * Gets the BoardState piece type of the Queen.
+     * 
+     * @return BoardState.QUEEN.
+     */
+    @Override
+    public int getType() {
+        return BoardState.QUEEN;
     }
     
     /**
@@ -39,95 +62,23 @@ public class Queen extends Piece {
             return false;
         }
         
-        int xStart = startTile.getX();
-        int yStart = startTile.getY();
-        int xEnd = endTile.getX();
-        int yEnd = endTile.getY();
-        
-        // Check if the move is a valid diagonal move
-        if (xStart == xEnd || yStart == yEnd || Math.abs(xStart - xEnd) == Math.abs(yStart - yEnd)) {
-            // Check if the path is clear
-            if (isPathClear(board, xStart, yStart, xEnd, yEnd)) {
-                // System.out.println("Rook move check pass."); // Debugging statement
-                return true;
-            }
-        }
-        // System.out.println("Move invalid: Rook can only move horizontally or vertically."); // Debugging statement
-        return false;
+        int start = startTile.getX() * 8 + startTile.getY();
+        int end = endTile.getX() * 8 + endTile.getY();
+        // One lookup in the magic attack tables checks both the direction and that the path is clear
+        return (Attacks.queenAttacks(start, board.getState().getAllPieces()) & (1L << end)) != 0;
     }
     
     /**
      * Generates a list of potential moves.
      * Includes movement along any rank, file, or diagonal.
      * 
+     * @param position The square the Queen stands on.
      * @return List of potential positions the Queen may move to.
      */
     @Override
-    public List<Position> getPotentialMoves() {
-        List<Position> moves = new ArrayList<>();
-        int currentRow = this.getPosition().getRow();
-        int currentColumn = this.getPosition().getColumn();
-        
-        // Horizontal and vertical movement
-        for (int i = 0; i < SIZE; i++) {
-            if (i != currentRow) {
-                moves.add(new Position(i, currentColumn));
-            }
-            if (i != currentColumn) {
-                moves.add(new Position(currentRow, i));
-            }
-        }
-        
-        // Diagonal movement
-        int[][] directions = {
-            {-1, -1}, {-1, 1},
-            {1, -1}, {1, 1}
-        };
-        
-        for (int[] direction : directions) {
-            int nextRow = currentRow;
-            int nextColumn = currentColumn;
-            
-            while (true) {
-                nextRow += direction[0];
-                nextColumn += direction[1];
-                
-                if (nextRow >= 0 && nextRow < SIZE && nextColumn >= 0 && nextColumn < SIZE) {
-                    moves.add(new Position(nextRow, nextColumn));
-                } else {
-                    break;
-                }
-            }
-        }
-        return moves;
-    }
-    
-    /**
-     * Checks if the path between the start and end positions is clear and available for movement.
-     * Goes one-by-one, checking if each tile is clear.
-     * 
-     * @param board The current board state.
-     * @param xStart The x-coordinate of the start position.
-     * @param yStart The y-coordinate of the start position.
-     * @param xEnd The x-coordinate of the end position.
-     * @param yEnd The y-coordinate of the end position.
-     * @return true if the path is clear.
-     */
-    private boolean isPathClear(Board board, int xStart, int yStart, int xEnd, int yEnd) {
-        int xDirection = Integer.compare(xEnd, xStart);
-        int yDirection = Integer.compare(yEnd, yStart);
-        
-        int x = xStart + xDirection;
-        int y = yStart + yDirection;
-        
-        while (x != xEnd || y != yEnd) {
-            if (board.getTile(x, y).isOccupied()) {
-                return false;
-            }
-            if (x != xEnd) x += xDirection;
-            if (y != yEnd) y += yDirection;
-        }
-        return true;
+    public List<Position> getPotentialMoves(Position position) {
+        // The squares the Queen attacks on an empty board
+        return toPositions(Attacks.queenAttacks(position.getSquare(), 0L));
     }
     
     /**
@@ -1,9 +1,10 @@
 package main.java.pieces;
 
-import java.util.ArrayList;
 import java.util.List;
 import javafx.scene.image.Image;
+import main.java.Attacks;
 import main.java.Board;
+import main.java.BoardState;
 import main.java.Piece;
 import main.java.Position;
 import main.java.Tile;
@@ -13,16 +14,37 @@ import main.java.Tile;
  * Can move horizontally or vertically any number of squares.
  */
 public class Rook extends Piece {
-    private static final int SIZE = 8;
+    
+    // The only two Rooks, White's and Black's, shared by every board.
+    private static final Rook[] INSTANCES = {new Rook(Player.WHITE), new Rook(Player.BLACK)};
     
     /**
-     * Constructor.  Gives a specific color and position to the Rook.
+     * Constructor.  Gives the Rook a color.  Use of to get one of the shared instances.
      * 
-     * @param color The color of the Rook (WHITE/BLACK)
-     * @param position The position of the Rook.
+     * @param color The color of the Rook. (WHITE/BLACK)
      */
-    public Rook(Piece.Player color, Position position) {
-        super(color, position);
+    private Rook(Player color) {
+        super(color);
+    }
+    
+    /**
+     * Gets the Rook of a color.  Rooks hold no position, so one instance per color serves every square and board.
+     * 
+     * @param color The color of the Rook.
+     * @return The shared Rook.
+     */
+    public static Rook of(Player color) {
+        return INSTANCES[color.ordinal()];
+    }
+    
+    /**
+     * Gets the BoardState piece type of the Rook.
+     * 
+     * @return BoardState.ROOK.
+     */
+    @Override
+    public int getType() {
+        return BoardState.ROOK;
     }
     
     /**
@@ -40,72 +62,22 @@ public class Rook extends Piece {
             return false;
         }
         
-        int xStart = startTile.getX();
-        int yStart = startTile.getY();
-        int xEnd = endTile.getX();
-        int yEnd = endTile.getY();
-        
-        // Check if the move is a valid diagonal move
-        if (xStart == xEnd || yStart == yEnd) {
-            // Check if the path is clear
-            if (isPathClear(board, xStart, yStart, xEnd, yEnd)) {
-                // System.out.println("Rook move check pass."); // Debugging statement
-                return true;
-            }
-        }
-        
-        // System.out.println("Move invalid: Rook can only move horizontally or vertically."); // Debugging statement
-        return false;
+        int start = startTile.getX() * 8 + startTile.getY();
+        int end = endTile.getX() * 8 + endTile.getY();
+        // One lookup in the magic attack tables checks both the direction and that the path is clear
+        return (Attacks.rookAttacks(start, board.getState().getAllPieces()) & (1L << end)) != 0;
     }
     
     /**
      * Generates a list of potential moves.
      * 
+     * @param position The square the Rook stands on.
      * @return A list of potential moves that the Bishop may move to.
      */
     @Override
-    public List<Position> getPotentialMoves() {
-        List<Position> moves = new ArrayList<>();
-        int currentRow = this.getPosition().getRow();
-        int currentColumn = this.getPosition().getColumn();
-        
-        for (int i = 0; i < SIZE; i++) {
-            if (i != currentRow) {
-                moves.add(new Position(i, currentColumn));
-            }
-            if (i != currentColumn) {
-                moves.add(new Position(currentRow, i));
-            }
-        }
-        return moves;
-    }
-    
-    /**
-     * Checks if the path between the start and end positions is clear and available for movement.
-     * Goes one-by-one, checking if each tile is clear.
-     * 
-     * @param board The current board state.
-     * @param xStart The x-coordinate of the start position.
-     * @param yStart The y-coordinate of the start position.
-     * @param xEnd The x-coordinate of the end position.
-     * @param yEnd The y-coordinate of the end position.
-     * @return true if the path is clear.
-     */
-    private boolean isPathClear(Board board, int xStart, int yStart, int xEnd, int yEnd) {
-        int xDirection = Integer.compare(xEnd, xStart);
-        int yDirection = Integer.compare(yEnd, yStart);
-        
-        int x = xStart + xDirection;
-        int y = yStart + yDirection;
-        
-        while (x != xEnd && y != yEnd) {
-            if (board.getTile(x, y).isOccupied()) {
-                return false;
-            }
-            x += xDirection;
-            y += yDirection;
-        }
-        return true;
+    public List<Position> getPotentialMoves(Position position) {
+        // The squares the Rook attacks on an empty board
+        return toPositions(Attacks.rookAttacks(position.getSquare(), 0L));
     }
     
     /**
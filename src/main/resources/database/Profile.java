@@ -153,6 +153,24 @@ public class Profile {
         // return the list of profiles
         return profiles;
     }
+
+    /**
+     * This method is used to save profiles back to the CSV file, e.g. after their results were updated
+     * @param profiles 
+     */
+    public static void saveProfilesToCSV(List<Profile> profiles) {
+        // Specify the csv file 
+        String filepath = "Profile.csv";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filepath))) {
+            // write the header, then one row per profile
+            writer.write("Name, Wins, Losses, Draws\n");
+            for (Profile profile : profiles) {
+                writer.write(profile.getName() + "," + profile.getWins() + "," + profile.getLosses() + "," + profile.getDraws() + "\n");
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(Profile.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
     
     
     